@@ -0,0 +1,132 @@
+package com.emirates.urp.benchmarks;
+
+import com.emirates.urp.util.ChangeSetProvider;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs one check through a real {@link Checker} and {@code TreeWalker} over a generated corpus.
+ * <p>
+ * The corpus is committed on a feature branch of a temporary repository that becomes the working
+ * directory of the run, so git-aware checks see every file as changed and check all methods.
+ * Scores are files per second; run with the GC profiler to get the allocation rate per file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(CheckBenchmark.FILES)
+public class CheckBenchmark {
+
+  static final int FILES = 50;
+
+  /**
+   * Properties of the checks that differ from their defaults.
+   */
+  private static final Map<String, Map<String, String>> PROPERTIES = Map.of(
+      "MissingJavaDocMethodUrpCheck",
+      Map.of("fileExtensions", "java", "minLineCount", "1", "fetchPolicy", "never"),
+      "JavaDocMethodSizeCheck", Map.of("max", "5"));
+
+  @Param({"IntermediateEmptyLinesCheck", "EmptyLineAtTheEndChecker",
+      "AnnotationsWithoutEmptyLinesChecker", "MissingJavaDocMethodUrpCheck",
+      "JavaDocMethodSizeCheck"})
+  public String check;
+
+  @Param({"20", "200"})
+  public int methodsPerFile;
+
+  @Param({"0", "4", "12"})
+  public int annotationsPerMember;
+
+  @Param({"0", "50"})
+  public int textBlockPercent;
+
+  private Path repository;
+
+  private String userDir;
+
+  private Checker checker;
+
+  private List<File> files;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, GitAPIException, CheckstyleException {
+    repository = Files.createTempDirectory("urp-checkstyle-benchmark").toRealPath();
+    try (Git git = Git.init().setInitialBranch("main").setDirectory(repository.toFile()).call()) {
+      Files.writeString(repository.resolve("README.md"), "benchmark\n");
+      git.add().addFilepattern(".").call();
+      git.commit().setMessage("main").call();
+      git.checkout().setCreateBranch(true).setName("feature").call();
+      final Path sources = Files.createDirectories(repository.resolve("src/generated"));
+      files = new Corpus(methodsPerFile, annotationsPerMember, textBlockPercent)
+          .write(sources, FILES);
+      git.add().addFilepattern(".").call();
+      git.commit().setMessage("feature").call();
+    }
+    userDir = System.getProperty("user.dir");
+    System.setProperty("user.dir", repository.toString());
+    ChangeSetProvider.getInstance().invalidate();
+
+    final DefaultConfiguration checkConfig = new DefaultConfiguration(check);
+    PROPERTIES.getOrDefault(check, Map.of()).forEach(checkConfig::addProperty);
+    final DefaultConfiguration treeWalkerConfig = new DefaultConfiguration("TreeWalker");
+    treeWalkerConfig.addChild(checkConfig);
+    final DefaultConfiguration checkerConfig = new DefaultConfiguration("Checker");
+    checkerConfig.addChild(treeWalkerConfig);
+    checker = new Checker();
+    checker.setModuleClassLoader(Checker.class.getClassLoader());
+    checker.configure(checkerConfig);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    checker.destroy();
+    System.setProperty("user.dir", userDir);
+    ChangeSetProvider.getInstance().invalidate();
+    try (Stream<Path> paths = Files.walk(repository)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Checks all files of the corpus.
+   *
+   * @return the number of violations, consumed by the harness
+   * @throws CheckstyleException if checkstyle fails
+   */
+  @Benchmark
+  public int process() throws CheckstyleException {
+    return checker.process(files);
+  }
+}
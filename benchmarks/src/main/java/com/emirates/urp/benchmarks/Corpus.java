@@ -0,0 +1,112 @@
+package com.emirates.urp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates Java sources that look like the code the checks run on: annotated members, Javadoc on
+ * some methods, blank lines inside and at the end of bodies and text blocks.
+ * <p>
+ * The corpus is generated from a fixed seed, runs with the same parameters check the same code.
+ */
+final class Corpus {
+
+  private static final String[] ANNOTATIONS = {"@Deprecated", "@SuppressWarnings(\"unused\")",
+      "@SuppressWarnings({\n      \"unchecked\",\n      \"rawtypes\"\n  })", "@Override",
+      "@SafeVarargs"};
+
+  private final int methodsPerFile;
+
+  private final int annotationsPerMember;
+
+  private final int textBlockPercent;
+
+  private final Random random = new Random(42);
+
+  /**
+   * Creates a generator.
+   *
+   * @param methodsPerFile       the number of methods of every class
+   * @param annotationsPerMember the number of annotations of every method and field
+   * @param textBlockPercent     the share of methods that declare a text block, in percent
+   */
+  Corpus(int methodsPerFile, int annotationsPerMember, int textBlockPercent) {
+    this.methodsPerFile = methodsPerFile;
+    this.annotationsPerMember = annotationsPerMember;
+    this.textBlockPercent = textBlockPercent;
+  }
+
+  /**
+   * Writes classes to the directory.
+   *
+   * @param directory the directory
+   * @param files     the number of classes
+   * @return the written files
+   * @throws IOException if a file couldn't be written
+   */
+  List<File> write(Path directory, int files) throws IOException {
+    final List<File> written = new ArrayList<>(files);
+    for (int i = 0; i < files; i++) {
+      final String className = "Generated" + i;
+      final Path file = directory.resolve(className + ".java");
+      Files.writeString(file, generate(className));
+      written.add(file.toFile());
+    }
+    return written;
+  }
+
+  private String generate(String className) {
+    final StringBuilder source = new StringBuilder("package generated;\n\n");
+    appendAnnotations(source, "");
+    source.append("public class ").append(className).append(" {\n\n");
+    for (int method = 0; method < methodsPerFile; method++) {
+      appendAnnotations(source, "  ");
+      source.append("  private String field").append(method).append(";\n\n");
+      appendMethod(source, method);
+    }
+    return source.append("}\n").toString();
+  }
+
+  private void appendMethod(StringBuilder source, int method) {
+    if (method % 2 == 0) {
+      source.append("  /**\n   * Method number ").append(method).append(".\n   */\n");
+    }
+    appendAnnotations(source, "  ");
+    if (random.nextInt(10) == 0) {
+      // a blank line between annotations and the signature
+      source.append('\n');
+    }
+    source.append("  public String method").append(method).append("(int value) {\n");
+    if (random.nextInt(10) == 0) {
+      source.append('\n');
+    }
+    source.append("    int result = value;\n");
+    for (int statement = 0; statement < 6; statement++) {
+      source.append("    result += value * ").append(statement).append("; // step\n");
+      if (random.nextInt(8) == 0) {
+        source.append("\n\n");
+      }
+    }
+    if (random.nextInt(100) < textBlockPercent) {
+      source.append("    String text = \"\"\"\n        first line\n\n\n        last line\n"
+          + "        \"\"\";\n");
+    }
+    source.append("    /* block\n     comment */\n");
+    source.append("    return field").append(method).append(" + result;\n");
+    if (random.nextInt(10) == 0) {
+      source.append('\n');
+    }
+    source.append("  }\n\n");
+  }
+
+  private void appendAnnotations(StringBuilder source, String indent) {
+    for (int i = 0; i < annotationsPerMember; i++) {
+      source.append(indent).append(ANNOTATIONS[i % ANNOTATIONS.length]).append('\n');
+    }
+  }
+}
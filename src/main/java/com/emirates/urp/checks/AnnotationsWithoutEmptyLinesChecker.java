@@ -1,11 +1,10 @@
 package com.emirates.urp.checks;
 
-
-import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.emirates.urp.checks.common.AbstractMeasuredCheck;
+import com.emirates.urp.checks.common.DetailASTIndex;
+import com.emirates.urp.checks.common.LineTable;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Если вы хотите убедиться, что между любыми двумя аннотациями или между последней аннотацией и
@@ -20,18 +19,24 @@ import java.util.List;
  * Проверка, которая проверяет наличие пустых строк и комментариев между аннотациями
  * и сигнаторой метода, конструктора и класса.
  */
-public class AnnotationsWithoutEmptyLinesChecker extends AbstractCheck {
+public class AnnotationsWithoutEmptyLinesChecker extends AbstractMeasuredCheck {
 
   public static final String MSG_EMPTY_LINE = "urp.methodEmptyLines.emptyLinesBetweenAnnotation";
 
+  private DetailASTIndex index;
+
+  private LineTable lines;
+
   /**
-   * Обрабатываем только конструкторы, модификаторы и record.
+   * Обрабатываем методы, конструкторы, классы, интерфейсы, перечисления, record и поля.
    *
    * @return - {@link int[]}
    */
   @Override
   public int[] getDefaultTokens() {
-    return new int[]{TokenTypes.METHOD_DEF, TokenTypes.CTOR_DEF, TokenTypes.COMPACT_CTOR_DEF};
+    return new int[]{TokenTypes.METHOD_DEF, TokenTypes.CTOR_DEF, TokenTypes.COMPACT_CTOR_DEF,
+        TokenTypes.CLASS_DEF, TokenTypes.INTERFACE_DEF, TokenTypes.ENUM_DEF,
+        TokenTypes.RECORD_DEF, TokenTypes.ANNOTATION_DEF, TokenTypes.VARIABLE_DEF};
   }
 
   @Override
@@ -41,73 +46,88 @@ public class AnnotationsWithoutEmptyLinesChecker extends AbstractCheck {
 
   @Override
   public int[] getRequiredTokens() {
-    return getDefaultTokens();
+    return new int[]{TokenTypes.METHOD_DEF, TokenTypes.CTOR_DEF, TokenTypes.COMPACT_CTOR_DEF};
   }
 
   @Override
-  public void visitToken(DetailAST ast) {
-    // Получаем список всех аннотаций у метода.
-    final DetailAST modifiers = ast.findFirstToken(TokenTypes.MODIFIERS);
-    if (modifiers != null) {
-      DetailAST annotation = modifiers.findFirstToken(TokenTypes.ANNOTATION);
-      while (annotation != null) {
-        checkForEmptyLinesOrComments(annotation);
-        annotation = annotation.getNextSibling();
-      }
-    }
+  protected void onBeginTree(DetailAST rootAST) {
+    index = DetailASTIndex.of(rootAST);
+    lines = LineTable.of(getFileContents());
   }
 
+  @Override
+  protected void onFinishTree(DetailAST rootAST) {
+    DetailASTIndex.release(rootAST);
+    index = null;
+    lines = null;
+  }
 
-  private void checkForEmptyLinesOrComments(DetailAST annotation) {
-    List<DetailAST> annotations = new ArrayList<>();
+  @Override
+  protected void onVisitToken(DetailAST ast) {
+    checkModifiers(ast);
+  }
 
-    // Собираем все аннотации
-    DetailAST currentAnnotation = annotation;
-    while (currentAnnotation != null && currentAnnotation.getType() == TokenTypes.ANNOTATION) {
-      annotations.add(currentAnnotation);
-      currentAnnotation = currentAnnotation.getNextSibling();
+  /**
+   * Один проход по модификаторам: начиная с первой аннотации проверяем каждый промежуток между
+   * соседними модификаторами и между последним модификатором и сигнатурой ровно один раз.
+   *
+   * @param ast the token to process
+   */
+  private void checkModifiers(DetailAST ast) {
+    if (ast.getType() == TokenTypes.VARIABLE_DEF
+        && ast.getParent().getType() != TokenTypes.OBJBLOCK) {
+      // Локальные переменные не проверяем, только поля.
+      return;
     }
-
-    // Проверяем промежутки между аннотациями
-    for (int i = 0; i < annotations.size() - 1; i++) {
-      validateGap(annotations.get(i), annotations.get(i + 1));
+    final DetailAST modifiers = index.findFirstChild(ast, TokenTypes.MODIFIERS);
+    if (modifiers == null) {
+      return;
     }
-
-    // Проверяем промежуток между последней аннотацией и сигнатурой метода/конструктора
-    if (!annotations.isEmpty()) {
-      DetailAST parent = annotations.get(annotations.size() - 1).getParent().getParent();
-      validateGap(annotations.get(annotations.size() - 1), parent.findFirstToken(TokenTypes.TYPE));
+    final DetailAST annotation = index.findFirstChild(modifiers, TokenTypes.ANNOTATION);
+    if (annotation == null) {
+      return;
+    }
+    DetailAST previous = annotation;
+    for (DetailAST current = annotation.getNextSibling(); current != null;
+        current = current.getNextSibling()) {
+      validateGap(previous, current);
+      previous = current;
+    }
+    // Промежуток между последним модификатором и сигнатурой.
+    final DetailAST signature = modifiers.getNextSibling();
+    if (signature != null) {
+      validateGap(previous, signature);
     }
   }
 
-
-  private void validateGap(final DetailAST start, final DetailAST end) {
-    var current = start;
-
-    while (current != null && current != end) {
-      current = current.getNextSibling();
-
-      if (current == null) {
-        break;
-      }
-
-      if (isViolation(current)) {
-        log(current.getLineNo(), 0, MSG_EMPTY_LINE);
-        break;
-      }
+  /**
+   * Проверяем, есть ли пустые строки или строки комментариев между двумя соседними элементами
+   * объявления.
+   *
+   * @param previous the element before the gap
+   * @param next     the element after the gap
+   */
+  private void validateGap(DetailAST previous, DetailAST next) {
+    // Номера строк начинаются с 1, индексы в таблице строк с 0. Промежуток начинается после
+    // последней строки предыдущего элемента: аргументы многострочной аннотации не проверяем.
+    if (lines.hasBlankOrComment(getLastLineNo(previous), next.getLineNo() - 1)) {
+      log(next.getLineNo(), 0, MSG_EMPTY_LINE);
     }
   }
 
-
-  /*
-  Мы проверяем, является ли текущий токен однострочным комментарием.
-  Мы проверяем, является ли текущий токен началом блочного комментария.
-  Мы проверяем, была ли между текущим и предыдущим токеном пустая строка.
+  /**
+   * Последняя строка элемента: строка его последнего токена, например закрывающей скобки
+   * аргументов аннотации.
+   *
+   * @param ast the element
+   * @return the line of the last token of the element, one-based
    */
-  private boolean isViolation(DetailAST current) {
-    return current.getType() == TokenTypes.SINGLE_LINE_COMMENT
-        || current.getType() == TokenTypes.BLOCK_COMMENT_BEGIN
-        || current.getLineNo() != current.getPreviousSibling().getLineNo() + 1;
+  private static int getLastLineNo(DetailAST ast) {
+    int lineNo = ast.getLineNo();
+    for (DetailAST last = ast.getLastChild(); last != null; last = last.getLastChild()) {
+      lineNo = Math.max(lineNo, last.getLineNo());
+    }
+    return lineNo;
   }
 
-}
\ No newline at end of file
+}
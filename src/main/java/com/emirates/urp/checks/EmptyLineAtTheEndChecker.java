@@ -1,16 +1,22 @@
 package com.emirates.urp.checks;
 
-import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.emirates.urp.checks.common.AbstractMeasuredCheck;
+import com.emirates.urp.checks.common.DetailASTIndex;
+import com.emirates.urp.checks.common.LineTable;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 
 /**
  * We should avoid empty line at the end of method or constructor.
  */
-public class EmptyLineAtTheEndChecker extends AbstractCheck {
+public class EmptyLineAtTheEndChecker extends AbstractMeasuredCheck {
 
   public static final String MSG_EMPTY_LINE = "urp.methodEmptyLines.emptyLinesNotAllowedInTheEnd";
 
+  private DetailASTIndex index;
+
+  private LineTable lines;
+
   @Override
   public int[] getDefaultTokens() {
     return new int[]{TokenTypes.METHOD_DEF, TokenTypes.CTOR_DEF, TokenTypes.COMPACT_CTOR_DEF};
@@ -27,10 +33,23 @@ public class EmptyLineAtTheEndChecker extends AbstractCheck {
   }
 
   @Override
-  public void visitToken(DetailAST ast) {
-    DetailAST openingBrace = ast.findFirstToken(TokenTypes.SLIST);
+  protected void onBeginTree(DetailAST rootAST) {
+    index = DetailASTIndex.of(rootAST);
+    lines = LineTable.of(getFileContents());
+  }
+
+  @Override
+  protected void onFinishTree(DetailAST rootAST) {
+    DetailASTIndex.release(rootAST);
+    index = null;
+    lines = null;
+  }
+
+  @Override
+  protected void onVisitToken(DetailAST ast) {
+    DetailAST openingBrace = index.findFirstChild(ast, TokenTypes.SLIST);
     DetailAST closingBrace =
-        (openingBrace != null) ? findLastChildWhichHasType(openingBrace, TokenTypes.RCURLY) : null;
+        (openingBrace != null) ? index.findLastChild(openingBrace, TokenTypes.RCURLY) : null;
 
     if (openingBrace != null && closingBrace != null) {
       int open = openingBrace.getLineNo();
@@ -40,37 +59,23 @@ public class EmptyLineAtTheEndChecker extends AbstractCheck {
     }
   }
 
-  private DetailAST findLastChildWhichHasType(DetailAST ast, int type) {
-    DetailAST child = ast.getLastChild();
-    while (child != null && child.getType() != type) {
-      child = child.getPreviousSibling();
-    }
-    return child;
-  }
-
 
   private void checkEmptyLinesAfter(int startLine, int endLine) {
-    String[] lines = getLines();
     for (int currentLine = startLine; currentLine < endLine; currentLine++) {
-      if (lines[currentLine].trim().isEmpty()) {
-        log(currentLine + 1, MSG_EMPTY_LINE);  // учитываем смещение на 1
-      }
-      if (!lines[currentLine].trim().isEmpty()) {
+      if (!lines.isBlank(currentLine)) {
         break;
       }
+      log(currentLine + 1, MSG_EMPTY_LINE);  // учитываем смещение на 1
     }
   }
 
   private void checkEmptyLinesBefore(int endLine, int startLine) {
-    String[] lines = getLines();
     // -2 because =>  -1 it's our close braket, but we want to start from line that goes after breacket that way start from 2
     for (int currentLine = endLine - 2; currentLine > startLine; currentLine--) {
-      if (lines[currentLine].trim().isEmpty()) {
-        log(currentLine + 1, MSG_EMPTY_LINE);
-      }
-      if (!lines[currentLine].trim().isEmpty()) {
+      if (!lines.isBlank(currentLine)) {
         break;
       }
+      log(currentLine + 1, MSG_EMPTY_LINE);
     }
   }
 
@@ -1,33 +1,182 @@
 package com.emirates.urp.checks;
 
-import static com.puppycrawl.tools.checkstyle.api.TokenTypes.RCURLY;
-import static com.puppycrawl.tools.checkstyle.grammar.java.JavaLanguageLexer.SLIST;
-
-import com.emirates.urp.util.CheckCodeStyleUtils;
-import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.emirates.urp.checks.common.AbstractMeasuredCheck;
+import com.emirates.urp.checks.common.DetailASTIndex;
+import com.emirates.urp.metrics.Metrics;
+import com.emirates.urp.util.ChangeSet;
+import com.emirates.urp.util.DiffScope;
+import com.emirates.urp.util.DiffSource;
+import com.emirates.urp.util.FetchPolicy;
+import com.emirates.urp.util.GitAwareModule;
+import com.emirates.urp.util.GitDiffSettings;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
-import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.TextBlock;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
-import java.util.List;
-import java.util.Objects;
+import java.nio.file.Path;
 import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
 
 
 /**
  * Check the minimal amount of lines at the method and constructor where class names are matching
  * specified regex.
  */
-public class JavaDocMethodSizeCheck extends AbstractCheck {
+@Slf4j
+public class JavaDocMethodSizeCheck extends AbstractMeasuredCheck implements GitAwareModule {
 
   public static final String MSG_EMPTY_LINE = "urp.methodJavaDoc.javaDocMissedOnMethods";
   private int max = 150;
   private Pattern ignoreClassNamesRegex;
 
+  /**
+   * The main branch, diff options and fetch policy of git changes, the same properties as of
+   * {@link MissingJavaDocMethodUrpCheck}.
+   */
+  private final GitDiffSettings diffSettings = new GitDiffSettings();
+
+  /**
+   * Whether only files changed in the branch are checked.
+   */
+  private boolean enabledGit;
+
+  /**
+   * Git changes of the branch, requested with the first file.
+   */
+  private ChangeSet changes;
+
+  /**
+   * Whether methods of the file being checked are checked: the file name matches
+   * {@link #ignoreClassNamesRegex} and, with {@link #enabledGit}, the file is changed in the
+   * branch.
+   */
+  private boolean fileChecked;
+
+  /**
+   * Index of the tree of the file being checked.
+   */
+  private DetailASTIndex index;
+
+  /**
+   * Setter to control whether only files changed in the branch are checked, all files are checked
+   * outside a git repository.
+   *
+   * @param enabledGit user's value.
+   */
+  public void setEnabledGit(boolean enabledGit) {
+    this.enabledGit = enabledGit;
+  }
+
+  /**
+   * Setter to configure main git branch.
+   *
+   * @param mainBranch - main git branch.
+   */
+  public void setMainBranch(String mainBranch) {
+    diffSettings.setMainBranch(mainBranch);
+  }
+
+  /**
+   * Setter to control whether parsed git changes are cached in the git directory between runs.
+   *
+   * @param diffCacheEnabled user's value.
+   */
+  public void setDiffCacheEnabled(boolean diffCacheEnabled) {
+    diffSettings.setDiffCacheEnabled(diffCacheEnabled);
+  }
+
+  /**
+   * Setter to configure the number of threads that diff lines of changed files.
+   *
+   * @param diffParallelism user's value, {@code 1} diffs files one after another.
+   */
+  public void setDiffParallelism(int diffParallelism) {
+    diffSettings.setDiffParallelism(diffParallelism);
+  }
+
+  /**
+   * Setter to control whether moved and copied files are diffed against their sources, so only
+   * lines changed after the move are checked.
+   *
+   * @param renameDetectionEnabled user's value.
+   */
+  public void setRenameDetectionEnabled(boolean renameDetectionEnabled) {
+    diffSettings.setRenameDetectionEnabled(renameDetectionEnabled);
+  }
+
+  /**
+   * Setter to configure the minimum similarity in percent of a moved or copied file to its source.
+   *
+   * @param renameScore user's value.
+   */
+  public void setRenameScore(int renameScore) {
+    diffSettings.setRenameScore(renameScore);
+  }
+
+  /**
+   * Setter to configure the maximum number of added or removed files for which renames are
+   * searched by content.
+   *
+   * @param renameLimit user's value, {@code 0} for no limit.
+   */
+  public void setRenameLimit(int renameLimit) {
+    diffSettings.setRenameLimit(renameLimit);
+  }
+
+  /**
+   * Setter to configure what is compared: {@code committed} changes of the branch, the staged
+   * {@code index} or the {@code worktree}.
+   *
+   * @param diffSource name of the source.
+   */
+  public void setDiffSource(String diffSource) {
+    diffSettings.setDiffSource(DiffSource.parse(diffSource));
+  }
+
+  /**
+   * Setter to configure the maximum number of commits walked to find the merge-base with the main
+   * branch. When it is reached the branch is compared with the head of the main branch.
+   *
+   * @param mergeBaseDepth user's value, {@code 0} for no limit.
+   */
+  public void setMergeBaseDepth(int mergeBaseDepth) {
+    diffSettings.setMergeBaseDepth(mergeBaseDepth);
+  }
+
+  /**
+   * Setter to configure when the main branch is fetched: {@code never}, {@code ifStale},
+   * {@code background} or {@code always}.
+   *
+   * @param fetchPolicy name of the policy.
+   */
+  public void setFetchPolicy(String fetchPolicy) {
+    diffSettings.setFetchPolicy(FetchPolicy.parse(fetchPolicy));
+  }
+
+  /**
+   * Setter to configure the age of the last fetch in seconds after which {@code ifStale} policy
+   * fetches again.
+   *
+   * @param fetchStaleSeconds user's value.
+   */
+  public void setFetchStaleSeconds(int fetchStaleSeconds) {
+    diffSettings.setFetchStaleSeconds(fetchStaleSeconds);
+  }
+
+  /**
+   * Setter to specify the regular expression of file names whose methods are checked, all files
+   * are checked if it is not set.
+   *
+   * @param pattern user's value.
+   */
   public void setIgnoreClassNamesRegex(Pattern pattern) {
     ignoreClassNamesRegex = pattern;
   }
 
+  /**
+   * Setter to specify the maximum number of lines of a method without Javadoc.
+   *
+   * @param length user's value.
+   */
   public void setMax(int length) {
     this.max = length;
   }
@@ -48,58 +197,79 @@ public class JavaDocMethodSizeCheck extends AbstractCheck {
   }
 
   @Override
-  public void visitToken(DetailAST ast) {
-    final List<String> changedFileSet = CheckCodeStyleUtils.getChangedFileList();
-
-    System.out.println(changedFileSet.size() + " sizze");
-    changedFileSet.forEach(it -> System.out.printf("Updated files" + it));
-
-    //System.out.printf(getFileContents().getFileName());
-
-    //System.out.println("!!asdsadasdasdasd");
-
-    //Check class
-    String[] split = getFilePath().split("/");
-    String className = split[split.length - 1];
-    System.out.println("filename:  " + className);
-
-    System.out.println("sasdaasad " + ignoreClassNamesRegex.matcher(className).matches());
+  public DiffScope getDiffScope() {
+    return diffSettings.getDiffScope();
+  }
 
-    if (ignoreClassNamesRegex.matcher(className).matches()) {
+  /**
+   * Starts fetching the main branch. Git changes are requested with the first file, so a fetch in
+   * background overlaps with parsing.
+   */
+  @Override
+  public void init() {
+    changes = null;
+    if (enabledGit) {
+      diffSettings.fetch();
+    }
+  }
 
-      System.out.println(" aasdasdas");
+  /**
+   * Decides once per file whether its methods are checked.
+   *
+   * @param rootAST the root of the tree
+   */
+  @Override
+  protected void onBeginTree(DetailAST rootAST) {
+    final String fileName = Path.of(getFilePath()).getFileName().toString();
+    final boolean changed = !enabledGit || isChanged();
+    if (!changed) {
+      Metrics.recordSkippedFile(getClass());
+    }
+    fileChecked = changed
+        && (ignoreClassNamesRegex == null || ignoreClassNamesRegex.matcher(fileName).matches());
+    log.debug("File '{}' is checked - '{}'", fileName, fileChecked);
+    index = DetailASTIndex.of(rootAST);
+  }
 
-      //Get open curley bracket from first method
-      DetailAST openingBrace = ast.findFirstToken(SLIST);
+  /**
+   * Whether the file being checked is changed in the branch, every file is changed when there is
+   * no repository, the same as for {@link com.emirates.urp.filters.GitChangedFilesFilter}.
+   */
+  private boolean isChanged() {
+    if (changes == null) {
+      changes = diffSettings.getChangeSet();
+      log.debug("Changed files - '{}'", changes.paths());
+    }
+    return changes.getRepositoryRoot() == null || changes.find(getFilePath()).isPresent();
+  }
 
-      if (openingBrace != null) {
-        DetailAST closingBrace = openingBrace.findFirstToken(RCURLY);
+  @Override
+  protected void onFinishTree(DetailAST rootAST) {
+    DetailASTIndex.release(rootAST);
+    index = null;
+  }
 
-        //Count current method length
-        int currentLength = closingBrace.getLineNo() - openingBrace.getLineNo() + 1;
+  @Override
+  protected void onVisitToken(DetailAST ast) {
+    checkLength(ast);
+  }
 
-        if (currentLength > this.max) {
-          FileContents contents = getFileContents();
-          if (Objects.nonNull(contents)) {
-            TextBlock textBlock = contents.getJavadocBefore(ast.getLineNo());
-            if (Objects.isNull(textBlock)) {
-            }
-          }
-          this.log(ast.getLineNo(), ast.getColumnNo(),
-              "No JavaDoc for method where length more then {1}. Current size is {0}",
-              currentLength, this.max);
-        }
+  @SuppressWarnings("deprecation")
+  private void checkLength(DetailAST ast) {
+    if (!fileChecked) {
+      return;
+    }
+    final DetailAST openingBrace = index.findFirstChild(ast, TokenTypes.SLIST);
+    if (openingBrace == null) {
+      return;
+    }
+    final DetailAST closingBrace = index.findLastChild(openingBrace, TokenTypes.RCURLY);
+    final int currentLength = closingBrace.getLineNo() - openingBrace.getLineNo() + 1;
+    if (currentLength > max) {
+      final TextBlock textBlock = getFileContents().getJavadocBefore(ast.getLineNo());
+      if (textBlock == null) {
+        log(ast, MSG_EMPTY_LINE, currentLength, max);
       }
     }
   }
-
-  /**
-   * Возвращает имя методов в классе.
-   *
-   * @param ast - {@link DetailAST}
-   * @return - {@link String}
-   */
-  private static String getName(DetailAST ast) {
-    return ast.findFirstToken(TokenTypes.IDENT).getText();
-  }
 }
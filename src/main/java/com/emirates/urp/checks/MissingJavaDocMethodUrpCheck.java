@@ -1,14 +1,20 @@
 package com.emirates.urp.checks;
 
 import static com.emirates.urp.checks.common.CheckUtil.getSurroundingAccessModifier;
-import static com.emirates.urp.checks.common.DetailASTUtil.getRootClassName;
 import static java.util.stream.Collectors.toSet;
 
-import com.emirates.urp.util.CheckCodeStyleUtils;
-import com.emirates.urp.util.DiffParser;
+import com.emirates.urp.checks.common.AbstractMeasuredCheck;
+import com.emirates.urp.checks.common.DetailASTIndex;
+import com.emirates.urp.metrics.Metrics;
+import com.emirates.urp.util.ChangeSet;
+import com.emirates.urp.util.ChangedLineIndex;
+import com.emirates.urp.util.DiffScope;
+import com.emirates.urp.util.DiffSource;
+import com.emirates.urp.util.FetchPolicy;
+import com.emirates.urp.util.GitAwareModule;
 import com.emirates.urp.util.GitChange;
+import com.emirates.urp.util.GitDiffSettings;
 import com.puppycrawl.tools.checkstyle.FileStatefulCheck;
-import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.TextBlock;
@@ -17,7 +23,7 @@ import com.puppycrawl.tools.checkstyle.checks.naming.AccessModifierOption;
 import com.puppycrawl.tools.checkstyle.utils.AnnotationUtil;
 import com.puppycrawl.tools.checkstyle.utils.CheckUtil;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
-import java.io.IOException;
+import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -27,10 +33,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jgit.api.errors.GitAPIException;
 
 /**
  * "This class is derived from the MissingJavadocMethodCheck class in Checkstyle. Additionally, it
@@ -40,7 +43,7 @@ import org.eclipse.jgit.api.errors.GitAPIException;
  */
 @FileStatefulCheck
 @Slf4j
-public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
+public class MissingJavaDocMethodUrpCheck extends AbstractMeasuredCheck implements GitAwareModule {
 
 
   /**
@@ -77,11 +80,6 @@ public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
   private boolean allowMissingPropertyJavadoc;
 
 
-  /**
-   * Ignore class whose names are matching specified regex.
-   */
-  private String mainBranch = "main";
-
   /**
    * Ignore class whose names are matching specified regex.
    */
@@ -94,25 +92,131 @@ public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
 
   private List<String> changedFileSet = new ArrayList<>();
 
-  private List<GitChange> changes = new ArrayList<>();
+  /**
+   * Git changes of the branch, requested with the first file.
+   */
+  private ChangeSet changes;
+
+  /**
+   * Git changes of the file being checked, {@code null} if the file has not been changed.
+   */
+  private GitChange fileChange;
+
+  /**
+   * Index of the tree of the file being checked.
+   */
+  private DetailASTIndex index;
+
   private boolean enabledGit = true;
 
+  /**
+   * The main branch, diff options and fetch policy of git changes.
+   */
+  private final GitDiffSettings diffSettings = new GitDiffSettings();
+
   public void setEnabledGit(boolean enabledGit) {
     this.enabledGit = enabledGit;
   }
 
+  /**
+   * Setter to control whether parsed git changes are cached in the git directory between runs.
+   *
+   * @param diffCacheEnabled user's value.
+   */
+  public void setDiffCacheEnabled(boolean diffCacheEnabled) {
+    diffSettings.setDiffCacheEnabled(diffCacheEnabled);
+  }
+
+  /**
+   * Setter to configure the number of threads that diff lines of changed files.
+   *
+   * @param diffParallelism user's value, {@code 1} diffs files one after another.
+   */
+  public void setDiffParallelism(int diffParallelism) {
+    diffSettings.setDiffParallelism(diffParallelism);
+  }
+
+  /**
+   * Setter to control whether moved and copied files are diffed against their sources, so only
+   * lines changed after the move are checked.
+   *
+   * @param renameDetectionEnabled user's value.
+   */
+  public void setRenameDetectionEnabled(boolean renameDetectionEnabled) {
+    diffSettings.setRenameDetectionEnabled(renameDetectionEnabled);
+  }
+
+  /**
+   * Setter to configure what is compared: {@code committed} changes of the branch, the staged
+   * {@code index} or the {@code worktree}.
+   *
+   * @param diffSource name of the source.
+   */
+  public void setDiffSource(String diffSource) {
+    diffSettings.setDiffSource(DiffSource.parse(diffSource));
+  }
+
+  /**
+   * Setter to configure the maximum number of commits walked to find the merge-base with the main
+   * branch. When it is reached the branch is compared with the head of the main branch.
+   *
+   * @param mergeBaseDepth user's value, {@code 0} for no limit.
+   */
+  public void setMergeBaseDepth(int mergeBaseDepth) {
+    diffSettings.setMergeBaseDepth(mergeBaseDepth);
+  }
+
+  /**
+   * Setter to configure the minimum similarity in percent of a moved or copied file to its source.
+   *
+   * @param renameScore user's value.
+   */
+  public void setRenameScore(int renameScore) {
+    diffSettings.setRenameScore(renameScore);
+  }
+
+  /**
+   * Setter to configure the maximum number of added or removed files for which renames are
+   * searched by content.
+   *
+   * @param renameLimit user's value, {@code 0} for no limit.
+   */
+  public void setRenameLimit(int renameLimit) {
+    diffSettings.setRenameLimit(renameLimit);
+  }
+
   public void setChangedFileSet(String... changedFileSet) {
     this.changedFileSet.clear();
     this.changedFileSet.addAll(Arrays.stream(changedFileSet).collect(toSet()));
   }
 
+  /**
+   * Setter to configure when the main branch is fetched: {@code never}, {@code ifStale},
+   * {@code background} or {@code always}.
+   *
+   * @param fetchPolicy name of the policy.
+   */
+  public void setFetchPolicy(String fetchPolicy) {
+    diffSettings.setFetchPolicy(FetchPolicy.parse(fetchPolicy));
+  }
+
+  /**
+   * Setter to configure the age of the last fetch in seconds after which {@code ifStale} policy
+   * fetches again.
+   *
+   * @param fetchStaleSeconds user's value.
+   */
+  public void setFetchStaleSeconds(int fetchStaleSeconds) {
+    diffSettings.setFetchStaleSeconds(fetchStaleSeconds);
+  }
+
   /**
    * Setter to configure main git branch.
    *
    * @param mainBranch - main git branch.
    */
   public void setMainBranch(String mainBranch) {
-    this.mainBranch = mainBranch;
+    diffSettings.setMainBranch(mainBranch);
   }
 
   /**
@@ -185,31 +289,51 @@ public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
     }
   }
 
+  @Override
+  public DiffScope getDiffScope() {
+    return diffSettings.getDiffScope();
+  }
+
   /**
-   * Initiate changed files from git.
+   * Starts fetching the main branch. Git changes are requested with the first file, so a fetch in
+   * background overlaps with parsing.
    */
   @Override
   public void init() {
-    try {
-      final String currentBranchName = CheckCodeStyleUtils.findCurrentBranchName();
-      final String currentRepo = CheckCodeStyleUtils.getCurrentRepo();
+    changes = null;
+    diffSettings.fetch();
+  }
 
-      if (currentRepo.equalsIgnoreCase(currentBranchName)) {
-        log.warn("You try to run check on the same branches");
-        return;
+  /**
+   * Looks up git changes of the file once, all methods of the file share the result. The change
+   * set is shared with other git-aware checks, git is parsed only once per JVM.
+   *
+   * @param rootAST the root of the tree
+   */
+  @Override
+  protected void onBeginTree(DetailAST rootAST) {
+    if (changes == null) {
+      changes = diffSettings.getChangeSet();
+
+      if (enabledGit && fileExtensions != null) {
+        changedFileSet = changes.paths().stream()
+            .filter(it -> CommonUtil.matchesFileExtension(new File(it), fileExtensions))
+            .map(it -> new File(it).getName())
+            .toList();
       }
-
-      log.debug("currentBranchName - '{}',  currentRepo - '{}, mainBranch - '{}'",
-          currentBranchName, currentRepo, mainBranch);
-      changes = DiffParser.parse(currentRepo, currentBranchName, mainBranch);
-    } catch (IOException | GitAPIException e) {
-      log.error("Couldn't get git diff in init method");
-      return;
+      log.debug("changedFileSet contains '{}'", changedFileSet);
+    }
+    fileChange = changes.find(getFilePath()).orElse(null);
+    if (fileChange == null) {
+      Metrics.recordSkippedFile(getClass());
     }
+    index = DetailASTIndex.of(rootAST);
+  }
 
-    changedFileSet = Optional.ofNullable(fileExtensions).filter(it -> enabledGit)
-        .map(CheckCodeStyleUtils::getChangedFileList).orElse(changedFileSet);
-    log.debug("changedFileSet contains '{}'", changedFileSet);
+  @Override
+  protected void onFinishTree(DetailAST rootAST) {
+    DetailASTIndex.release(rootAST);
+    index = null;
   }
 
 
@@ -241,12 +365,21 @@ public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
    *
    * @param ast the token to process
    */
-  @SuppressWarnings("deprecation")
   @Override
-  public final void visitToken(DetailAST ast) {
+  protected final void onVisitToken(DetailAST ast) {
+    checkMethod(ast);
+  }
+
+  /**
+   * Reports the method if it is changed and has no Javadoc, see {@link #visitToken(DetailAST)}.
+   *
+   * @param ast the method
+   */
+  @SuppressWarnings("deprecation")
+  private void checkMethod(DetailAST ast) {
     final Path path = Paths.get(getFilePath());
     final String filename = path.getFileName().getFileName().toString();
-    final var rootClassName = getRootClassName(ast);
+    final var rootClassName = index.getRootClassName(ast);
 
     log.debug("File path -'{}', filename - '{}', rootClassName - '{}'", path, filename,
         rootClassName);
@@ -266,33 +399,26 @@ public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
       log.debug("Proceeding filename - '{}'", filename);
 
       final DetailAST openingBrace = Optional.ofNullable(ast)
-          .map(it -> it.findFirstToken(TokenTypes.SLIST)).orElse(null);
+          .map(it -> index.findFirstChild(it, TokenTypes.SLIST)).orElse(null);
       final DetailAST closingBrace = Optional.ofNullable(openingBrace)
-          .map(this::findLastRCurly).orElse(null);
+          .map(it -> index.findLastChild(it, TokenTypes.RCURLY)).orElse(null);
 
       if (Objects.isNull(openingBrace) || Objects.isNull(closingBrace)) {
         log.debug("opening brace or closing brace is null");
         return;
       }
 
-      final Set<Integer> methodLines = IntStream.range(openingBrace.getLineNo(),
-          closingBrace.getLineNo() + 1).boxed().collect(Collectors.toSet());
-
-      final Optional<GitChange> gitChange = changes.stream()
-          .filter(it -> it.path().contains(filename)).findFirst();
-
-      if (gitChange.isEmpty()) {
+      if (fileChange == null) {
         log.debug("Couldn't get git changes for specific class or file.");
         return;
       }
 
-      final List<Integer> addedLines = gitChange.get().addedLines().stream().map(it -> it + 1)
-          .toList();
-      final List<Integer> deletedLines = gitChange.get().deletedLines().stream().map(it -> it + 1)
-          .toList();
+      final int firstLine = openingBrace.getLineNo();
+      final int lastLine = closingBrace.getLineNo();
 
-      if (addedLines.stream().anyMatch(methodLines::contains)
-          || deletedLines.stream().anyMatch(methodLines::contains) && (checkModifierOption(ast))) {
+      if (isAnyLineChanged(fileChange.addedLineIndex(), firstLine, lastLine)
+          || isAnyLineChanged(fileChange.deletedLineIndex(), firstLine, lastLine)
+          && (checkModifierOption(ast))) {
         final FileContents contents = getFileContents();
         final TextBlock textBlock = contents.getJavadocBefore(ast.getLineNo());
         if (textBlock == null && !isMissingJavadocAllowed(ast)) {
@@ -302,6 +428,20 @@ public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
     }
   }
 
+  /**
+   * Whether git changes touch the method body. Checkstyle numbers lines from one while git changes
+   * are numbered from zero, so the body is shifted instead of every changed line. The query is a
+   * binary search over changed ranges and does not allocate.
+   *
+   * @param changedLines changed lines of the file
+   * @param firstLine    the line of the opening brace, one-based
+   * @param lastLine     the line of the closing brace, one-based
+   * @return {@code true} if any line from {@code firstLine} to {@code lastLine} inclusive is changed
+   */
+  static boolean isAnyLineChanged(ChangedLineIndex changedLines, int firstLine, int lastLine) {
+    return changedLines.intersects(firstLine - 1, lastLine);
+  }
+
   /**
    * Get number of lines for method.
    *
@@ -361,12 +501,4 @@ public class MissingJavaDocMethodUrpCheck extends AbstractCheck {
         .anyMatch(modifier -> modifier == surroundingAccessModifier) && Arrays.stream(
         accessModifiers).anyMatch(modifier -> modifier == accessModifier);
   }
-
-  private DetailAST findLastRCurly(DetailAST ast) {
-    DetailAST child = ast.getLastChild();
-    while (child != null && child.getType() != TokenTypes.RCURLY) {
-      child = child.getPreviousSibling();
-    }
-    return child;
-  }
 }
@@ -0,0 +1,66 @@
+package com.emirates.urp.checks.common;
+
+import com.emirates.urp.metrics.CheckPhase;
+import com.emirates.urp.metrics.Metrics;
+import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * A check whose tree callbacks are timed by {@link Metrics}.
+ * <p>
+ * {@link #beginTree(DetailAST)}, {@link #visitToken(DetailAST)} and {@link #finishTree(DetailAST)}
+ * are final, subclasses implement {@link #onBeginTree(DetailAST)}, {@link #onVisitToken(DetailAST)}
+ * and {@link #onFinishTree(DetailAST)} instead. Times are recorded under the class of the
+ * subclass.
+ */
+public abstract class AbstractMeasuredCheck extends AbstractCheck {
+
+  @Override
+  public final void beginTree(DetailAST rootAST) {
+    final long start = Metrics.start();
+    onBeginTree(rootAST);
+    Metrics.recordCheck(start, getClass(), CheckPhase.BEGIN_TREE);
+  }
+
+  @Override
+  public final void visitToken(DetailAST ast) {
+    final long start = Metrics.start();
+    onVisitToken(ast);
+    Metrics.recordCheck(start, getClass(), CheckPhase.VISIT_TOKEN);
+  }
+
+  @Override
+  public final void finishTree(DetailAST rootAST) {
+    final long start = Metrics.start();
+    onFinishTree(rootAST);
+    Metrics.recordCheck(start, getClass(), CheckPhase.FINISH_TREE);
+  }
+
+  /**
+   * Called before the first token of a file is visited, see {@link #beginTree(DetailAST)}.
+   *
+   * @param rootAST the root of the tree
+   */
+  protected void onBeginTree(DetailAST rootAST) {
+    // no code by default
+  }
+
+  /**
+   * Called for every token of the file the check is registered for, see
+   * {@link #visitToken(DetailAST)}.
+   *
+   * @param ast the token to process
+   */
+  protected void onVisitToken(DetailAST ast) {
+    // no code by default
+  }
+
+  /**
+   * Called after the last token of a file is visited, see {@link #finishTree(DetailAST)}.
+   *
+   * @param rootAST the root of the tree
+   */
+  protected void onFinishTree(DetailAST rootAST) {
+    // no code by default
+  }
+}
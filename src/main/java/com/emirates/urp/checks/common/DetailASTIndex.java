@@ -0,0 +1,190 @@
+package com.emirates.urp.checks.common;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.utils.TokenUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-file index of the tree, shared by all checks of the file.
+ * <p>
+ * Checks get the index of the file in {@code beginTree} with {@link #of(DetailAST)} and release
+ * it in {@code finishTree} with {@link #release(DetailAST)}. Parts of the index are built on the
+ * first query and reused by later queries of the same or other checks:
+ * <ul>
+ *   <li>names of type declarations and the outermost type declaration of every type, method and
+ *   constructor, built with one walk of the tree;</li>
+ *   <li>children of a node grouped by token type, built for the node on the first query.</li>
+ * </ul>
+ * The index is kept per thread, a file is always checked on one thread.
+ */
+public final class DetailASTIndex {
+
+  private static final ThreadLocal<DetailASTIndex> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Declarations whose outermost type is indexed.
+   */
+  private static final BitSet DECLARATIONS = TokenUtil.asBitSet(TokenTypes.CLASS_DEF,
+      TokenTypes.INTERFACE_DEF, TokenTypes.ENUM_DEF, TokenTypes.RECORD_DEF,
+      TokenTypes.ANNOTATION_DEF, TokenTypes.METHOD_DEF, TokenTypes.CTOR_DEF,
+      TokenTypes.COMPACT_CTOR_DEF);
+
+  private final DetailAST root;
+
+  /**
+   * Outermost type names by declaration, {@code null} until the first query.
+   */
+  private Map<DetailAST, String> rootClassNames;
+
+  private final Map<DetailAST, Children> children = new IdentityHashMap<>();
+
+  private DetailASTIndex(DetailAST root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns the index of the tree, creating it if the tree is not the one indexed on this thread.
+   *
+   * @param root the root of the tree of the file
+   * @return the index
+   */
+  public static DetailASTIndex of(DetailAST root) {
+    DetailASTIndex index = CURRENT.get();
+    if (index == null || index.root != root) {
+      index = new DetailASTIndex(root);
+      CURRENT.set(index);
+    }
+    return index;
+  }
+
+  /**
+   * Drops the index of the tree, if it is the one indexed on this thread.
+   *
+   * @param root the root of the tree of the file
+   */
+  public static void release(DetailAST root) {
+    DetailASTIndex index = CURRENT.get();
+    if (index != null && index.root == root) {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * Returns the name of the outermost class, interface, enum or record that encloses the node, the
+   * same as {@link DetailASTUtil#getRootClassName(DetailAST)}. For type declarations, methods and
+   * constructors it is a map lookup.
+   *
+   * @param ast the node
+   * @return the class name, {@code null} if the node is outside of any class
+   */
+  public String getRootClassName(DetailAST ast) {
+    if (ast == null) {
+      return null;
+    }
+    if (rootClassNames == null) {
+      rootClassNames = indexRootClassNames();
+    }
+    String className = rootClassNames.get(ast);
+    if (className == null && !rootClassNames.containsKey(ast)) {
+      className = DetailASTUtil.getRootClassName(ast);
+    }
+    return className;
+  }
+
+  /**
+   * Finds the first child of the given type.
+   *
+   * @param ast  the parent node
+   * @param type the token type of the child
+   * @return the first child of the type, {@code null} if there is none
+   */
+  public DetailAST findFirstChild(DetailAST ast, int type) {
+    List<DetailAST> found = getChildren(ast, type);
+    return found.isEmpty() ? null : found.get(0);
+  }
+
+  /**
+   * Finds the last child of the given type.
+   *
+   * @param ast  the parent node
+   * @param type the token type of the child
+   * @return the last child of the type, {@code null} if there is none
+   */
+  public DetailAST findLastChild(DetailAST ast, int type) {
+    List<DetailAST> found = getChildren(ast, type);
+    return found.isEmpty() ? null : found.get(found.size() - 1);
+  }
+
+  /**
+   * Returns children of the given type in the order of the tree.
+   *
+   * @param ast  the parent node
+   * @param type the token type of the children
+   * @return the unmodifiable list of children
+   */
+  public List<DetailAST> getChildren(DetailAST ast, int type) {
+    return children.computeIfAbsent(ast, Children::new).get(type);
+  }
+
+  private Map<DetailAST, String> indexRootClassNames() {
+    Map<DetailAST, String> returnValue = new IdentityHashMap<>();
+    for (DetailAST topLevel = root; topLevel != null; topLevel = topLevel.getNextSibling()) {
+      DetailASTUtil.walk(topLevel, DECLARATIONS, declaration -> {
+        DetailAST enclosing = declaration.getParent();
+        while (enclosing != null && !isClassType(enclosing.getType())) {
+          enclosing = enclosing.getParent();
+        }
+        String className = enclosing == null ? null : returnValue.get(enclosing);
+        if (className == null && isClassType(declaration.getType())) {
+          DetailAST ident = declaration.findFirstToken(TokenTypes.IDENT);
+          className = ident == null ? null : ident.getText();
+        }
+        returnValue.put(declaration, className);
+        return true;
+      });
+    }
+    return returnValue;
+  }
+
+  private static boolean isClassType(int type) {
+    return type == TokenTypes.CLASS_DEF
+        || type == TokenTypes.INTERFACE_DEF
+        || type == TokenTypes.ENUM_DEF
+        || type == TokenTypes.RECORD_DEF;
+  }
+
+  /**
+   * Children of a node grouped by token type: types are sorted and looked up with a binary
+   * search, so queries neither box nor allocate.
+   */
+  private static final class Children {
+
+    private final int[] types;
+
+    private final List<List<DetailAST>> byType;
+
+    private Children(DetailAST parent) {
+      Map<Integer, List<DetailAST>> grouped = new TreeMap<>();
+      for (DetailAST child = parent.getFirstChild(); child != null;
+          child = child.getNextSibling()) {
+        grouped.computeIfAbsent(child.getType(), type -> new ArrayList<>(1)).add(child);
+      }
+      types = grouped.keySet().stream().mapToInt(Integer::intValue).toArray();
+      byType = new ArrayList<>(types.length);
+      grouped.values().forEach(list -> byType.add(Collections.unmodifiableList(list)));
+    }
+
+    private List<DetailAST> get(int type) {
+      int position = Arrays.binarySearch(types, type);
+      return position < 0 ? Collections.emptyList() : byType.get(position);
+    }
+  }
+}
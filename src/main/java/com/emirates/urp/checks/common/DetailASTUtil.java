@@ -1,8 +1,10 @@
 package com.emirates.urp.checks.common;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Streams;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -13,43 +15,119 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 public class DetailASTUtil {
 
+  /**
+   * Collects the node, the siblings after it and all their descendants.
+   *
+   * @param node the first node to collect
+   * @return the collected nodes
+   */
   public static Set<DetailAST> traverse(DetailAST node) {
     Set<DetailAST> visitedNodes = new HashSet<>();
-    collectNodes(node, visitedNodes);
+    for (DetailAST sibling = node; sibling != null; sibling = sibling.getNextSibling()) {
+      walk(sibling, it -> {
+        visitedNodes.add(it);
+        return true;
+      });
+    }
     return visitedNodes;
   }
 
-  //Обход дерева
-  private void collectNodes(DetailAST node, Set<DetailAST> visitedNodes) {
-    if (node == null) {
-      return;
-    }
+  /**
+   * Walks the node and all its descendants depth-first, parents before children. The walk
+   * follows parent and sibling links of the tree, so it takes constant stack and no memory
+   * however deep or wide the tree is.
+   *
+   * @param root    the root of the walked subtree
+   * @param visitor called for every node, returns {@code false} to stop the walk
+   * @return {@code false} if the visitor stopped the walk
+   */
+  public static boolean walk(DetailAST root, DetailASTVisitor visitor) {
+    return walk(root, root, null, visitor);
+  }
 
-    // Добавление текущего узла в Set.
-    visitedNodes.add(node);
+  /**
+   * Walks the node and all its descendants depth-first like {@link #walk(DetailAST,
+   * DetailASTVisitor)}, calling the visitor only for nodes of the given token types. Nodes of
+   * other types are still descended into.
+   *
+   * @param root       the root of the walked subtree
+   * @param tokenTypes the visited token types, see {@link
+   *                   com.puppycrawl.tools.checkstyle.utils.TokenUtil#asBitSet(int...)}
+   * @param visitor    called for every node of the given types, returns {@code false} to stop
+   *                   the walk
+   * @return {@code false} if the visitor stopped the walk
+   */
+  public static boolean walk(DetailAST root, BitSet tokenTypes, DetailASTVisitor visitor) {
+    return walk(root, root, tokenTypes, visitor);
+  }
 
-    // Рекурсивный обход всех дочерних узлов.
-    collectNodes(node.getFirstChild(), visitedNodes);
+  /**
+   * Walks all descendants of the node depth-first like {@link #walk(DetailAST,
+   * DetailASTVisitor)}, without the node itself.
+   *
+   * @param root    the root of the walked subtree
+   * @param visitor called for every descendant, returns {@code false} to stop the walk
+   * @return {@code false} if the visitor stopped the walk
+   */
+  public static boolean walkDescendants(DetailAST root, DetailASTVisitor visitor) {
+    return walk(root, root.getFirstChild(), null, visitor);
+  }
+
+  private static boolean walk(DetailAST root, DetailAST start, BitSet tokenTypes,
+      DetailASTVisitor visitor) {
+    for (DetailAST node = start; node != null; node = next(root, node)) {
+      if ((tokenTypes == null || tokenTypes.get(node.getType())) && !visitor.visit(node)) {
+        return false;
+      }
+    }
+    return true;
+  }
 
-    // Рекурсивный обход всех "братских" узлов.
-    collectNodes(node.getNextSibling(), visitedNodes);
+  /**
+   * Returns the node after the given one in depth-first order within the subtree.
+   *
+   * @param root the root of the subtree
+   * @param node the current node
+   * @return the next node, {@code null} when the subtree is over
+   */
+  private static DetailAST next(DetailAST root, DetailAST node) {
+    DetailAST current = node;
+    DetailAST next = current.getFirstChild();
+    while (next == null && current != root) {
+      next = current.getNextSibling();
+      current = current.getParent();
+    }
+    return next;
   }
 
   public static Stream<DetailAST> stream(DetailAST start) {
     return Streams.stream(new DetailASTIterator(start));
   }
 
+  /**
+   * Streams all descendants of the node depth-first, without the node itself.
+   *
+   * @param start the root of the subtree
+   * @return the descendants
+   */
   public static Stream<DetailAST> streamRecursively(DetailAST start) {
     if (start == null) {
       return Stream.empty();
-    } else if (start.getFirstChild() == null) {
-      return stream(start.getFirstChild());
-    } else {
-      return Stream.concat(
-          stream(start.getFirstChild()),
-          stream(start.getFirstChild()).flatMap(DetailASTUtil::streamRecursively)
-      );
     }
+    return Streams.stream(new AbstractIterator<DetailAST>() {
+
+      private DetailAST next = start.getFirstChild();
+
+      @Override
+      protected DetailAST computeNext() {
+        if (next == null) {
+          return endOfData();
+        }
+        DetailAST current = next;
+        next = DetailASTUtil.next(start, current);
+        return current;
+      }
+    });
   }
 
   public static DetailAST getFirstChild(DetailAST ast, int type) {
@@ -64,9 +142,22 @@ public class DetailASTUtil {
   }
 
   public static Optional<DetailAST> tryGetFirstChild(DetailAST ast, int type) {
-    return stream(ast.getFirstChild())
-        .filter(it -> it.getType() == type)
-        .findFirst();
+    return Optional.ofNullable(ast.findFirstToken(type));
+  }
+
+  /**
+   * Finds the last child of the given type.
+   *
+   * @param ast  the parent node
+   * @param type the token type of the child
+   * @return the last child of the type, {@code null} if there is none
+   */
+  public static DetailAST findLastChild(DetailAST ast, int type) {
+    DetailAST child = ast.getLastChild();
+    while (child != null && child.getType() != type) {
+      child = child.getPreviousSibling();
+    }
+    return child;
   }
 
   public static Stream<DetailAST> streamAll(DetailAST start, int type) {
@@ -0,0 +1,18 @@
+package com.emirates.urp.checks.common;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * Callback of the tree walks of {@link DetailASTUtil}.
+ */
+@FunctionalInterface
+public interface DetailASTVisitor {
+
+  /**
+   * Visits a node of the tree.
+   *
+   * @param node the visited node
+   * @return {@code true} to continue the walk, {@code false} to stop it
+   */
+  boolean visit(DetailAST node);
+}
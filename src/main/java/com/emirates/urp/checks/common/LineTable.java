@@ -0,0 +1,220 @@
+package com.emirates.urp.checks.common;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-file classification of lines into blank, comment and code lines, shared by all checks of the
+ * file.
+ * <p>
+ * The table is built with one lexical scan of the text on the first request and reused by the
+ * checks of the same file. The scan reads characters in place, no trimmed copies of lines are
+ * made. Lines are indexed from zero, the same as in {@link FileText#get(int)}:
+ * <ul>
+ *   <li>blank lines have nothing but whitespace and are outside of block comments and text
+ *   blocks;</li>
+ *   <li>comment lines have comments and whitespace only, blank lines inside block comments are
+ *   comment lines;</li>
+ *   <li>all other lines, including blank lines inside text blocks, are code lines.</li>
+ * </ul>
+ * The table is keyed by the {@link FileContents} {@code TreeWalker} hands to every check of the
+ * file, {@link FileContents#getText()} returns a new copy on each call. The table is kept per
+ * thread, a file is always checked on one thread. It stays until another file is requested:
+ * {@code TreeWalker} walks a file twice when a check needs comment nodes, and both walks use the
+ * same table.
+ */
+public final class LineTable {
+
+  private static final ThreadLocal<LineTable> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Number of scanned texts, read by tests.
+   */
+  private static final LongAdder SCANS = new LongAdder();
+
+  private final FileContents contents;
+
+  private final FileText text;
+
+  private final BitSet blank = new BitSet();
+
+  private final BitSet comment = new BitSet();
+
+  private LineTable(FileContents contents) {
+    this.contents = contents;
+    this.text = contents.getText();
+    scan();
+  }
+
+  /**
+   * Returns the table of the file, scanning its text if it is not the file scanned on this thread.
+   *
+   * @param contents the contents of the file
+   * @return the table
+   */
+  public static LineTable of(FileContents contents) {
+    LineTable table = CURRENT.get();
+    if (table == null || table.contents != contents) {
+      table = new LineTable(contents);
+      CURRENT.set(table);
+    }
+    return table;
+  }
+
+  /**
+   * Drops the table of the file, if it is the one scanned on this thread.
+   *
+   * @param contents the contents of the file
+   */
+  public static void release(FileContents contents) {
+    LineTable table = CURRENT.get();
+    if (table != null && table.contents == contents) {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * Returns the number of texts scanned so far on all threads.
+   *
+   * @return the number of scans
+   */
+  static long scanCount() {
+    return SCANS.sum();
+  }
+
+  /**
+   * Returns the number of lines of the file.
+   *
+   * @return the number of lines
+   */
+  public int size() {
+    return text.size();
+  }
+
+  /**
+   * Checks whether the line has nothing but whitespace and is outside of comments and text blocks.
+   *
+   * @param index the index of the line, from zero
+   * @return {@code true} if the line is blank
+   */
+  public boolean isBlank(int index) {
+    return blank.get(index);
+  }
+
+  /**
+   * Checks whether the line has comments and whitespace only.
+   *
+   * @param index the index of the line, from zero
+   * @return {@code true} if the line is a comment line
+   */
+  public boolean isComment(int index) {
+    return comment.get(index);
+  }
+
+  /**
+   * Checks whether there is a blank or comment line in the range.
+   *
+   * @param fromIndex the index of the first line, inclusive
+   * @param toIndex   the index of the last line, exclusive
+   * @return {@code true} if one of the lines is not a code line
+   */
+  public boolean hasBlankOrComment(int fromIndex, int toIndex) {
+    int blankFound = blank.nextSetBit(fromIndex);
+    int commentFound = comment.nextSetBit(fromIndex);
+    return blankFound >= 0 && blankFound < toIndex
+        || commentFound >= 0 && commentFound < toIndex;
+  }
+
+  private void scan() {
+    SCANS.increment();
+    State state = State.CODE;
+    for (int index = 0; index < text.size(); index++) {
+      String line = text.get(index);
+      boolean hasCode = state == State.TEXT_BLOCK;
+      boolean hasComment = state == State.BLOCK_COMMENT;
+      int position = 0;
+      while (position < line.length()) {
+        char current = line.charAt(position);
+        if (state == State.BLOCK_COMMENT) {
+          hasComment = true;
+          if (line.startsWith("*/", position)) {
+            state = State.CODE;
+            position += 2;
+          } else {
+            position++;
+          }
+        } else if (state == State.TEXT_BLOCK) {
+          hasCode = true;
+          if (current == '\\') {
+            position += 2;
+          } else if (line.startsWith("\"\"\"", position)) {
+            state = State.CODE;
+            position += 3;
+          } else {
+            position++;
+          }
+        } else if (current <= ' ') {
+          position++;
+        } else if (line.startsWith("//", position)) {
+          hasComment = true;
+          position = line.length();
+        } else if (line.startsWith("/*", position)) {
+          hasComment = true;
+          state = State.BLOCK_COMMENT;
+          position += 2;
+        } else if (line.startsWith("\"\"\"", position)) {
+          hasCode = true;
+          state = State.TEXT_BLOCK;
+          position += 3;
+        } else if (current == '"' || current == '\'') {
+          hasCode = true;
+          position = skipLiteral(line, position);
+        } else {
+          hasCode = true;
+          position++;
+        }
+      }
+      if (!hasCode) {
+        if (hasComment) {
+          comment.set(index);
+        } else {
+          blank.set(index);
+        }
+      }
+    }
+  }
+
+  /**
+   * Skips a string or character literal.
+   *
+   * @param line     the line
+   * @param position the position of the opening quote
+   * @return the position after the closing quote or the end of the line
+   */
+  private static int skipLiteral(String line, int position) {
+    char quote = line.charAt(position);
+    int current = position + 1;
+    while (current < line.length()) {
+      char character = line.charAt(current);
+      if (character == '\\') {
+        current += 2;
+      } else if (character == quote) {
+        return current + 1;
+      } else {
+        current++;
+      }
+    }
+    return line.length();
+  }
+
+  /**
+   * State of the scan carried over line ends.
+   */
+  private enum State {
+    CODE,
+    BLOCK_COMMENT,
+    TEXT_BLOCK
+  }
+}
@@ -0,0 +1,98 @@
+package com.emirates.urp.daemon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin client of {@link CheckDaemon}: sends paths of files to check and prints the report.
+ * <p>
+ * The client loads neither checkstyle nor git, so it starts fast enough for pre-commit hooks. The
+ * socket is found in the git directory of the working directory unless it is given explicitly.
+ */
+public final class CheckClient {
+
+  private CheckClient() {
+  }
+
+  /**
+   * Checks files with the daemon of the repository and exits with the number of errors.
+   * <p>
+   * Usage: {@code [-s <socket>] [--stop] <file>...}
+   *
+   * @param args the command line arguments
+   * @throws IOException if the daemon couldn't be reached
+   */
+  public static void main(String[] args) throws IOException {
+    Path socket = null;
+    String command = CheckDaemon.CHECK_COMMAND;
+    final List<Path> files = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-s".equals(args[i]) && i + 1 < args.length) {
+        socket = Path.of(args[++i]);
+      } else if ("--stop".equals(args[i])) {
+        command = CheckDaemon.STOP_COMMAND;
+      } else {
+        files.add(Path.of(args[i]));
+      }
+    }
+    System.exit(request(socket == null ? findSocket() : socket, command, files, System.out));
+  }
+
+  /**
+   * Sends a request to the daemon and copies its report to the output.
+   *
+   * @param socket  the socket of the daemon
+   * @param command {@code check} or {@code stop}
+   * @param files   the files to check, relative to the working directory or absolute
+   * @param output  the stream the report is printed to
+   * @return the number of errors found
+   * @throws IOException if the daemon couldn't be reached or closed the connection early
+   */
+  static int request(Path socket, String command, List<Path> files, PrintStream output)
+      throws IOException {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      final PrintWriter writer = new PrintWriter(Channels.newOutputStream(channel), false,
+          StandardCharsets.UTF_8);
+      writer.println(command);
+      for (Path file : files) {
+        writer.println(file.toAbsolutePath().normalize());
+      }
+      writer.println();
+      writer.flush();
+      final BufferedReader reader = new BufferedReader(
+          new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (line.startsWith(CheckDaemon.EXIT_PREFIX)) {
+          return Integer.parseInt(line.substring(CheckDaemon.EXIT_PREFIX.length()));
+        }
+        output.println(line);
+      }
+      throw new IOException("The daemon closed the connection without a result");
+    }
+  }
+
+  /**
+   * Finds the socket in the nearest {@code .git} directory above the working directory.
+   */
+  private static Path findSocket() throws IOException {
+    for (Path directory = Path.of("").toAbsolutePath(); directory != null;
+        directory = directory.getParent()) {
+      final Path gitDirectory = directory.resolve(".git");
+      if (Files.isDirectory(gitDirectory)) {
+        return gitDirectory.resolve(CheckDaemon.SOCKET_FILE);
+      }
+    }
+    throw new IOException("Not inside a git work tree, pass the socket with -s");
+  }
+}
@@ -0,0 +1,400 @@
+package com.emirates.urp.daemon;
+
+import com.emirates.urp.util.ChangeSetProvider;
+import com.emirates.urp.util.DiffScope;
+import com.emirates.urp.util.DiffSource;
+import com.emirates.urp.util.GitRepositories;
+import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean.OutputStreamOptions;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultLogger;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps a configured {@link Checker} warm and checks files on request of {@link CheckClient}.
+ * <p>
+ * The daemon listens on a Unix domain socket, {@value #SOCKET_FILE} in the git directory by
+ * default. A request is a command line, {@code check} or {@code stop}, followed by absolute paths
+ * of files, one per line, and an empty line. The response is the output of checkstyle's plain
+ * logger followed by {@code exit <number of errors>}.
+ * <p>
+ * {@code HEAD}, {@code packed-refs}, {@code index} and the directories under {@code refs} are
+ * watched: when a branch moves or files are staged, cached change sets are dropped and the checker
+ * is configured again with the next request, so git-aware checks and filters see the new changes.
+ * Edits of the work tree aren't watched: if a git-aware module compares the work tree, the checker
+ * is configured again with every request. Requests are served one at a time, a client that
+ * doesn't send its whole request within {@link #DEFAULT_READ_TIMEOUT} is disconnected so it can't
+ * hold up later requests.
+ */
+@Slf4j
+public final class CheckDaemon implements Closeable {
+
+  /**
+   * The socket of the daemon, relative to the git directory.
+   */
+  public static final String SOCKET_FILE = "urp-checkstyle/daemon.sock";
+
+  static final String CHECK_COMMAND = "check";
+
+  static final String STOP_COMMAND = "stop";
+
+  static final String EXIT_PREFIX = "exit ";
+
+  /**
+   * The time a client has to send its whole request.
+   */
+  static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(10);
+
+  private final Configuration configuration;
+
+  private final Path socket;
+
+  private final Path gitDirectory;
+
+  private final ServerSocketChannel server;
+
+  private final WatchService watchService;
+
+  private final AtomicInteger refChanges = new AtomicInteger();
+
+  /**
+   * Whether a git-aware module diffs the work tree, whose edits are not watched.
+   */
+  private final boolean reloadEveryRequest;
+
+  /**
+   * Value of {@link #refChanges} the current checker was configured with.
+   */
+  private int checkerRefChanges;
+
+  private Checker checker;
+
+  private Duration readTimeout = DEFAULT_READ_TIMEOUT;
+
+  private volatile boolean stopped;
+
+  /**
+   * Binds the socket and starts watching refs of the repository.
+   *
+   * @param configuration the checkstyle configuration, its root is the {@code Checker} module
+   * @param socket        the path of the socket
+   * @param gitDirectory  the git directory whose refs are watched
+   * @throws IOException if the socket couldn't be bound or a daemon already listens on it
+   * @throws IllegalArgumentException if a git-aware module couldn't be configured
+   */
+  public CheckDaemon(Configuration configuration, Path socket, Path gitDirectory)
+      throws IOException {
+    this.configuration = configuration;
+    this.socket = socket;
+    this.gitDirectory = gitDirectory;
+    this.reloadEveryRequest = DiffScope.collect(configuration, Checker.class.getClassLoader())
+        .stream()
+        .anyMatch(scope -> scope.getOptions().getDiffSource() == DiffSource.WORKTREE);
+    deleteStaleSocket(socket);
+    Files.createDirectories(socket.getParent());
+    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(socket));
+    Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+    watchService = FileSystems.getDefault().newWatchService();
+    registerRefDirectories();
+    final Thread watcher = new Thread(this::watchRefs, "urp-checkstyle-daemon-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  /**
+   * Starts a daemon for the repository of the working directory and serves requests until it is
+   * stopped.
+   * <p>
+   * Usage: {@code -c <configuration file> [-s <socket>]}
+   *
+   * @param args the command line arguments
+   * @throws CheckstyleException if the configuration couldn't be loaded
+   * @throws IOException         if the socket couldn't be bound
+   */
+  public static void main(String[] args) throws CheckstyleException, IOException {
+    String configurationFile = null;
+    Path socket = null;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if ("-c".equals(args[i])) {
+        configurationFile = args[i + 1];
+      } else if ("-s".equals(args[i])) {
+        socket = Path.of(args[i + 1]);
+      }
+    }
+    if (configurationFile == null) {
+      throw new IllegalArgumentException("Usage: -c <configuration file> [-s <socket>]");
+    }
+    final Path gitDirectory = GitRepositories.current().getDirectory().toPath();
+    try (CheckDaemon daemon = new CheckDaemon(
+        ConfigurationLoader.loadConfiguration(configurationFile,
+            new PropertiesExpander(System.getProperties())),
+        socket == null ? gitDirectory.resolve(SOCKET_FILE) : socket,
+        gitDirectory)) {
+      daemon.serve();
+    }
+  }
+
+  /**
+   * Serves requests on the calling thread until a {@code stop} request comes or the daemon is
+   * closed.
+   *
+   * @throws IOException if the socket fails
+   */
+  public void serve() throws IOException {
+    log.info("Serving checks on '{}'", socket);
+    while (!stopped) {
+      try (SocketChannel channel = server.accept()) {
+        handle(channel);
+      } catch (ClosedChannelException e) {
+        if (!stopped) {
+          throw e;
+        }
+      } catch (IOException e) {
+        log.warn("Couldn't serve a request", e);
+      }
+    }
+  }
+
+  /**
+   * Number of changes of refs and the index seen so far.
+   *
+   * @return the number of changes
+   */
+  int getRefChanges() {
+    return refChanges.get();
+  }
+
+  /**
+   * Sets the time a client has to send its whole request.
+   *
+   * @param readTimeout the new value, {@link #DEFAULT_READ_TIMEOUT} by default
+   */
+  void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  @Override
+  public void close() throws IOException {
+    stopped = true;
+    server.close();
+    watchService.close();
+    Files.deleteIfExists(socket);
+    if (checker != null) {
+      checker.destroy();
+      checker = null;
+    }
+  }
+
+  private void handle(SocketChannel channel) throws IOException {
+    final BufferedReader reader = new BufferedReader(new StringReader(readRequest(channel)));
+    final OutputStream output = Channels.newOutputStream(channel);
+    final String command = reader.readLine();
+    final List<File> files = new ArrayList<>();
+    for (String line = reader.readLine(); line != null && !line.isEmpty();
+        line = reader.readLine()) {
+      files.add(new File(line));
+    }
+    int errors = 0;
+    if (STOP_COMMAND.equals(command)) {
+      stopped = true;
+    } else if (CHECK_COMMAND.equals(command)) {
+      errors = check(files, output);
+    } else {
+      log.warn("Unknown command '{}'", command);
+      errors = 1;
+    }
+    final PrintWriter writer = new PrintWriter(output, true, StandardCharsets.UTF_8);
+    writer.println(EXIT_PREFIX + errors);
+  }
+
+  /**
+   * Reads the request up to its empty line, or up to the end of the stream if the client closes
+   * its side early.
+   *
+   * @throws SocketTimeoutException if the request doesn't come within the read timeout
+   */
+  private String readRequest(SocketChannel channel) throws IOException {
+    final ByteArrayOutputStream request = new ByteArrayOutputStream();
+    final ByteBuffer buffer = ByteBuffer.allocate(8192);
+    final long deadline = System.nanoTime() + readTimeout.toNanos();
+    int lines = 0;
+    int lineLength = 0;
+    boolean complete = false;
+    channel.configureBlocking(false);
+    try (Selector selector = Selector.open()) {
+      channel.register(selector, SelectionKey.OP_READ);
+      while (!complete) {
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+          throw new SocketTimeoutException("No request within " + readTimeout);
+        }
+        selector.select(remaining);
+        selector.selectedKeys().clear();
+        final int read = channel.read(buffer);
+        if (read < 0) {
+          break;
+        }
+        for (int i = 0; i < buffer.position() && !complete; i++) {
+          final byte current = buffer.get(i);
+          if (current == '\n') {
+            complete = lineLength == 0 && lines > 0;
+            lines++;
+            lineLength = 0;
+          } else if (current != '\r') {
+            lineLength++;
+          }
+        }
+        request.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+      }
+    }
+    channel.configureBlocking(true);
+    return request.toString(StandardCharsets.UTF_8);
+  }
+
+  private int check(List<File> files, OutputStream output) {
+    final DefaultLogger logger = new DefaultLogger(output, OutputStreamOptions.NONE);
+    try {
+      final Checker current = getChecker();
+      current.addListener(logger);
+      try {
+        return current.process(files);
+      } finally {
+        current.removeListener(logger);
+      }
+    } catch (CheckstyleException e) {
+      log.error("Couldn't check files", e);
+      new PrintWriter(output, true, StandardCharsets.UTF_8).println(e);
+      return 1;
+    }
+  }
+
+  /**
+   * Returns the checker, configuring a new one if refs or the index changed since the current one
+   * was configured, or with every request if the work tree is diffed.
+   */
+  private Checker getChecker() throws CheckstyleException {
+    final int changes = refChanges.get();
+    if (checker != null && (reloadEveryRequest || changes != checkerRefChanges)) {
+      if (changes != checkerRefChanges) {
+        log.info("Git refs or index changed, reloading changes");
+      }
+      checker.destroy();
+      checker = null;
+    }
+    if (checker == null) {
+      ChangeSetProvider.getInstance().invalidate();
+      final Checker configured = new Checker();
+      configured.setModuleClassLoader(Checker.class.getClassLoader());
+      configured.configure(configuration);
+      checker = configured;
+      checkerRefChanges = changes;
+    }
+    return checker;
+  }
+
+  private void registerRefDirectories() throws IOException {
+    gitDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    final Path refs = gitDirectory.resolve("refs");
+    if (Files.isDirectory(refs)) {
+      try (Stream<Path> directories = Files.walk(refs)) {
+        for (Path directory : directories.filter(Files::isDirectory).toList()) {
+          directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+      }
+    }
+  }
+
+  private void watchRefs() {
+    try {
+      while (true) {
+        final WatchKey key = watchService.take();
+        final Path directory = (Path) key.watchable();
+        boolean changed = false;
+        for (var event : key.pollEvents()) {
+          final Path name = (Path) event.context();
+          if (name == null) {
+            changed = true;
+          } else if (!directory.equals(gitDirectory)) {
+            changed = true;
+            final Path created = directory.resolve(name);
+            if (Files.isDirectory(created)) {
+              created.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                  StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+          } else {
+            final String fileName = name.toString();
+            changed |= "HEAD".equals(fileName) || "packed-refs".equals(fileName)
+                || "index".equals(fileName);
+          }
+        }
+        if (changed) {
+          refChanges.incrementAndGet();
+        }
+        key.reset();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // the daemon is closed
+    } catch (IOException e) {
+      log.warn("Stopped watching git refs, changes are not reloaded any more", e);
+    }
+  }
+
+  private static void deleteStaleSocket(Path socket) throws IOException {
+    if (!Files.exists(socket)) {
+      return;
+    }
+    boolean listening;
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      listening = true;
+    } catch (IOException e) {
+      listening = false;
+    }
+    if (listening) {
+      throw new IOException("A daemon already listens on " + socket);
+    }
+    // left behind by a daemon that was killed
+    Files.delete(socket);
+  }
+}
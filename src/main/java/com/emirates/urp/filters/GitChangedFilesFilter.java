@@ -0,0 +1,160 @@
+package com.emirates.urp.filters;
+
+import com.emirates.urp.metrics.Metrics;
+import com.emirates.urp.util.ChangeSet;
+import com.emirates.urp.util.ChangeSetProvider;
+import com.emirates.urp.util.DiffScope;
+import com.emirates.urp.util.DiffSource;
+import com.emirates.urp.util.GitAwareModule;
+import com.emirates.urp.util.GitDiffSettings;
+import com.google.common.base.Suppliers;
+import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drops files that are not changed in the current git branch before checkstyle reads and parses
+ * them. Add it to the {@code Checker} module next to git-aware checks: on a large repository only
+ * the handful of files touched by the branch reach the {@code TreeWalker}.
+ * <p>
+ * The filter uses the change set shared with the checks, configure it with the same main branch and
+ * diff settings so git is parsed only once. When there is no change set, because the directory is
+ * not a git repository or the main branch itself is checked, every file is accepted. A branch
+ * without changes has a change set too, and all its files are dropped.
+ */
+@Slf4j
+public class GitChangedFilesFilter extends AbstractAutomaticBean
+    implements BeforeExecutionFileFilter, GitAwareModule {
+
+  /**
+   * The main branch and diff options of git changes.
+   */
+  private final GitDiffSettings diffSettings = new GitDiffSettings();
+
+  /**
+   * The change set, requested with the first file.
+   */
+  private final Supplier<ChangeSet> changes;
+
+  /**
+   * Creates the filter that asks {@link ChangeSetProvider} for changes of the current branch.
+   */
+  public GitChangedFilesFilter() {
+    this.changes = Suppliers.memoize(diffSettings::getChangeSet);
+  }
+
+  /**
+   * Creates the filter over the given changes.
+   *
+   * @param changes the change set to filter files with
+   */
+  GitChangedFilesFilter(ChangeSet changes) {
+    this.changes = () -> changes;
+  }
+
+  /**
+   * Setter to configure the main git branch.
+   *
+   * @param mainBranch - main git branch.
+   */
+  public void setMainBranch(String mainBranch) {
+    diffSettings.setMainBranch(mainBranch);
+  }
+
+  /**
+   * Setter to control whether parsed git changes are cached in the git directory between runs.
+   *
+   * @param diffCacheEnabled user's value.
+   */
+  public void setDiffCacheEnabled(boolean diffCacheEnabled) {
+    diffSettings.setDiffCacheEnabled(diffCacheEnabled);
+  }
+
+  /**
+   * Setter to configure the number of threads that diff lines of changed files.
+   *
+   * @param diffParallelism user's value, {@code 1} diffs files one after another.
+   */
+  public void setDiffParallelism(int diffParallelism) {
+    diffSettings.setDiffParallelism(diffParallelism);
+  }
+
+  /**
+   * Setter to control whether moved and copied files are diffed against their sources.
+   *
+   * @param renameDetectionEnabled user's value.
+   */
+  public void setRenameDetectionEnabled(boolean renameDetectionEnabled) {
+    diffSettings.setRenameDetectionEnabled(renameDetectionEnabled);
+  }
+
+  /**
+   * Setter to configure the minimum similarity in percent of a moved or copied file to its source.
+   *
+   * @param renameScore user's value.
+   */
+  public void setRenameScore(int renameScore) {
+    diffSettings.setRenameScore(renameScore);
+  }
+
+  /**
+   * Setter to configure the maximum number of added or removed files for which renames are
+   * searched by content.
+   *
+   * @param renameLimit user's value, {@code 0} for no limit.
+   */
+  public void setRenameLimit(int renameLimit) {
+    diffSettings.setRenameLimit(renameLimit);
+  }
+
+  /**
+   * Setter to configure what is compared: {@code committed} changes of the branch, the staged
+   * {@code index} or the {@code worktree}.
+   *
+   * @param diffSource name of the source.
+   */
+  public void setDiffSource(String diffSource) {
+    diffSettings.setDiffSource(DiffSource.parse(diffSource));
+  }
+
+  /**
+   * Setter to configure the maximum number of commits walked to find the merge-base with the main
+   * branch. When it is reached the branch is compared with the head of the main branch.
+   *
+   * @param mergeBaseDepth user's value, {@code 0} for no limit.
+   */
+  public void setMergeBaseDepth(int mergeBaseDepth) {
+    diffSettings.setMergeBaseDepth(mergeBaseDepth);
+  }
+
+  @Override
+  public DiffScope getDiffScope() {
+    return diffSettings.getDiffScope();
+  }
+
+  @Override
+  protected void finishLocalSetup() {
+    // nothing to set up, git is parsed lazily with the first file
+  }
+
+  /**
+   * Accepts a file if it has been changed in the current branch.
+   *
+   * @param uri the absolute path of the file
+   * @return {@code true} if the file is changed or there is no repository to filter with
+   */
+  @Override
+  public boolean accept(String uri) {
+    final ChangeSet changeSet = changes.get();
+    if (changeSet.getRepositoryRoot() == null) {
+      return true;
+    }
+    final boolean accepted = changeSet.contains(uri);
+    if (!accepted) {
+      log.debug("Skipping unchanged file '{}'", uri);
+      Metrics.recordSkippedFile(getClass());
+    }
+    return accepted;
+  }
+}
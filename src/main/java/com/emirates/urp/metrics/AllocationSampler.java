@@ -0,0 +1,44 @@
+package com.emirates.urp.metrics;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+/**
+ * Samples the bytes allocated by the checker thread once after every file, see
+ * {@link Metrics#recordAllocation()}.
+ * <p>
+ * Add it as a child of the {@code Checker} module, the parallel runner adds it to its checkers on
+ * its own.
+ */
+public final class AllocationSampler implements AuditListener {
+
+  @Override
+  public void auditStarted(AuditEvent event) {
+    // only files are sampled
+  }
+
+  @Override
+  public void auditFinished(AuditEvent event) {
+    // only files are sampled
+  }
+
+  @Override
+  public void fileStarted(AuditEvent event) {
+    // sampled when the file is finished
+  }
+
+  @Override
+  public void fileFinished(AuditEvent event) {
+    Metrics.recordAllocation();
+  }
+
+  @Override
+  public void addError(AuditEvent event) {
+    // only files are sampled
+  }
+
+  @Override
+  public void addException(AuditEvent event, Throwable throwable) {
+    // only files are sampled
+  }
+}
@@ -0,0 +1,23 @@
+package com.emirates.urp.metrics;
+
+/**
+ * Callbacks of a check that are timed.
+ */
+public enum CheckPhase {
+
+  /**
+   * {@code beginTree}, called once per file before tokens are visited.
+   */
+  BEGIN_TREE,
+
+  /**
+   * {@code visitToken}, called for every token the check is subscribed to. The number of calls is
+   * the number of visited tokens.
+   */
+  VISIT_TOKEN,
+
+  /**
+   * {@code finishTree}, called once per file after tokens are visited.
+   */
+  FINISH_TREE
+}
@@ -0,0 +1,27 @@
+package com.emirates.urp.metrics;
+
+/**
+ * Stages of reading git changes that are timed.
+ */
+public enum GitPhase {
+
+  /**
+   * Fetching the remote repository.
+   */
+  FETCH,
+
+  /**
+   * Walking history to find the merge-base of the branch with the main branch.
+   */
+  MERGE_BASE,
+
+  /**
+   * Comparing trees and diffing lines of changed files, the merge-base search included.
+   */
+  DIFF,
+
+  /**
+   * Listing names of changed files for {@link com.emirates.urp.util.CheckCodeStyleUtils}.
+   */
+  CHANGED_FILES
+}
@@ -0,0 +1,131 @@
+package com.emirates.urp.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits measurements as JFR events, they are recorded only while a flight recording with the
+ * events enabled is running, for example {@code -XX:StartFlightRecording}.
+ * <p>
+ * Callbacks of checks are emitted as {@code com.emirates.urp.CheckCallback} events, so keep a
+ * threshold on them in long recordings; git stages, skipped files and allocation samples have
+ * events of their own.
+ */
+public final class JfrMetricsRecorder implements MetricsRecorder {
+
+  private static final String CATEGORY = "URP Checkstyle";
+
+  @Override
+  public void recordCheck(Class<?> check, CheckPhase phase, long nanos) {
+    final CheckCallbackEvent event = new CheckCallbackEvent();
+    if (event.isEnabled()) {
+      event.check = check.getName();
+      event.phase = phase.name();
+      event.nanos = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void recordSkippedFile(Class<?> source) {
+    final SkippedFileEvent event = new SkippedFileEvent();
+    if (event.isEnabled()) {
+      event.source = source.getName();
+      event.commit();
+    }
+  }
+
+  @Override
+  public void recordGit(GitPhase phase, long nanos) {
+    final GitPhaseEvent event = new GitPhaseEvent();
+    if (event.isEnabled()) {
+      event.phase = phase.name();
+      event.nanos = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void recordAllocation(String thread, long allocatedBytes) {
+    final AllocationSampleEvent event = new AllocationSampleEvent();
+    if (event.isEnabled()) {
+      event.thread = thread;
+      event.allocatedBytes = allocatedBytes;
+      event.commit();
+    }
+  }
+
+  /**
+   * A callback of a check.
+   */
+  @Name("com.emirates.urp.CheckCallback")
+  @Label("Check Callback")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class CheckCallbackEvent extends Event {
+
+    @Label("Check")
+    String check;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+  }
+
+  /**
+   * A file skipped because it has not been changed.
+   */
+  @Name("com.emirates.urp.SkippedFile")
+  @Label("Skipped File")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class SkippedFileEvent extends Event {
+
+    @Label("Source")
+    @Description("The check, filter or runner that skipped the file")
+    String source;
+  }
+
+  /**
+   * A stage of reading git changes.
+   */
+  @Name("com.emirates.urp.GitPhase")
+  @Label("Git Phase")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class GitPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+  }
+
+  /**
+   * Bytes a checker thread has allocated since it started, sampled after every file.
+   */
+  @Name("com.emirates.urp.AllocationSample")
+  @Label("Allocation Sample")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class AllocationSampleEvent extends Event {
+
+    @Label("Thread")
+    String thread;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+  }
+}
@@ -0,0 +1,202 @@
+package com.emirates.urp.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Aggregates measurements in memory and writes them as a JSON report.
+ * <p>
+ * Timers are kept per check class and callback, and per git stage: the number of calls, the total
+ * and the maximum time in nanoseconds. The number of {@code visitToken} calls is reported as
+ * {@code tokensVisited}. For every thread the last sample of allocated bytes is reported.
+ */
+@Slf4j
+public final class JsonMetricsReport implements MetricsRecorder {
+
+  private final ConcurrentMap<Class<?>, Timer[]> checks = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Class<?>, LongAdder> skippedFiles = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<GitPhase, Timer> git = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, LongAccumulator> allocations = new ConcurrentHashMap<>();
+
+  @Override
+  public void recordCheck(Class<?> check, CheckPhase phase, long nanos) {
+    checks.computeIfAbsent(check, it -> newTimers(CheckPhase.values().length))[phase.ordinal()]
+        .record(nanos);
+  }
+
+  @Override
+  public void recordSkippedFile(Class<?> source) {
+    skippedFiles.computeIfAbsent(source, it -> new LongAdder()).increment();
+  }
+
+  @Override
+  public void recordGit(GitPhase phase, long nanos) {
+    git.computeIfAbsent(phase, it -> new Timer()).record(nanos);
+  }
+
+  @Override
+  public void recordAllocation(String thread, long allocatedBytes) {
+    allocations.computeIfAbsent(thread, it -> new LongAccumulator(Math::max, 0))
+        .accumulate(allocatedBytes);
+  }
+
+  /**
+   * Writes the report, replacing the file.
+   *
+   * @param file the report file
+   * @throws IOException if the file couldn't be written
+   */
+  public void write(Path file) throws IOException {
+    final Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Files.writeString(file, toJson());
+  }
+
+  /**
+   * Writes the report and logs a failure instead of throwing it, for shutdown hooks.
+   *
+   * @param file the report file
+   */
+  void writeQuietly(Path file) {
+    try {
+      write(file);
+    } catch (IOException e) {
+      log.warn("Couldn't write metrics report '{}'", file, e);
+    }
+  }
+
+  /**
+   * Renders measurements recorded so far.
+   *
+   * @return the JSON report
+   */
+  public String toJson() {
+    final StringBuilder json = new StringBuilder(1024).append("{\n  \"checks\": {");
+    final Map<Class<?>, Timer[]> sortedChecks = new TreeMap<>(Comparator.comparing(Class::getName));
+    sortedChecks.putAll(checks);
+    String separator = "\n";
+    for (Map.Entry<Class<?>, Timer[]> check : sortedChecks.entrySet()) {
+      json.append(separator).append("    ").append(quote(check.getKey().getName())).append(": {");
+      final Timer[] timers = check.getValue();
+      for (CheckPhase phase : CheckPhase.values()) {
+        json.append("\n      ").append(quote(name(phase))).append(": ");
+        timers[phase.ordinal()].appendTo(json);
+        json.append(',');
+      }
+      json.append("\n      \"tokensVisited\": ")
+          .append(timers[CheckPhase.VISIT_TOKEN.ordinal()].count.sum())
+          .append("\n    }");
+      separator = ",\n";
+    }
+    json.append(separator.equals("\n") ? "},\n" : "\n  },\n");
+
+    json.append("  \"skippedFiles\": {");
+    final Map<String, Long> skipped = new TreeMap<>();
+    skippedFiles.forEach((source, count) -> skipped.put(source.getName(), count.sum()));
+    appendNumbers(json, skipped);
+
+    json.append(",\n  \"git\": {");
+    separator = "\n";
+    for (GitPhase phase : GitPhase.values()) {
+      final Timer timer = git.get(phase);
+      if (timer != null) {
+        json.append(separator).append("    ").append(quote(name(phase))).append(": ");
+        timer.appendTo(json);
+        separator = ",\n";
+      }
+    }
+    json.append(separator.equals("\n") ? "}" : "\n  }");
+
+    json.append(",\n  \"threadAllocatedBytes\": {");
+    final Map<String, Long> allocated = new TreeMap<>();
+    allocations.forEach((thread, bytes) -> allocated.put(thread, bytes.get()));
+    appendNumbers(json, allocated);
+    return json.append("\n}\n").toString();
+  }
+
+  private static void appendNumbers(StringBuilder json, Map<String, Long> values) {
+    String separator = "\n";
+    for (Map.Entry<String, Long> value : values.entrySet()) {
+      json.append(separator).append("    ").append(quote(value.getKey())).append(": ")
+          .append(value.getValue());
+      separator = ",\n";
+    }
+    json.append(separator.equals("\n") ? "}" : "\n  }");
+  }
+
+  private static Timer[] newTimers(int count) {
+    final Timer[] timers = new Timer[count];
+    for (int i = 0; i < count; i++) {
+      timers[i] = new Timer();
+    }
+    return timers;
+  }
+
+  /**
+   * Converts {@code VISIT_TOKEN} to {@code visitToken}.
+   */
+  private static String name(Enum<?> value) {
+    final String[] words = value.name().toLowerCase(Locale.ROOT).split("_");
+    final StringBuilder name = new StringBuilder(words[0]);
+    for (int i = 1; i < words.length; i++) {
+      name.append(Character.toUpperCase(words[i].charAt(0))).append(words[i], 1,
+          words[i].length());
+    }
+    return name.toString();
+  }
+
+  private static String quote(String value) {
+    final StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char character = value.charAt(i);
+      if (character == '"' || character == '\\') {
+        quoted.append('\\').append(character);
+      } else if (character < ' ') {
+        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+      } else {
+        quoted.append(character);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  /**
+   * Number of calls, total and maximum time of one timed operation.
+   */
+  private static final class Timer {
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    private void record(long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+    }
+
+    private void appendTo(StringBuilder json) {
+      json.append("{\"count\": ").append(count.sum())
+          .append(", \"totalNanos\": ").append(totalNanos.sum())
+          .append(", \"maxNanos\": ").append(maxNanos.get())
+          .append('}');
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.emirates.urp.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import javax.annotation.Nullable;
+
+/**
+ * Entry point of measurements: checks, the diff parser and the runner report to the installed
+ * {@link MetricsRecorder}.
+ * <p>
+ * Without a recorder every call is a read of a volatile field, so timers stay in hot paths. Tree
+ * callbacks of checks extending {@link com.emirates.urp.checks.common.AbstractMeasuredCheck} are
+ * timed by the base class, other code is timed as
+ * <pre>
+ * final long start = Metrics.start();
+ * ...
+ * Metrics.recordCheck(start, getClass(), CheckPhase.VISIT_TOKEN);
+ * </pre>
+ * The recorder is set up from system properties when the class is loaded:
+ * {@value #REPORT_PROPERTY} names a JSON report written when the JVM exits, and
+ * {@value #JFR_PROPERTY}{@code =true} emits JFR events for a running flight recording.
+ */
+public final class Metrics {
+
+  /**
+   * System property with the path of the JSON report.
+   */
+  public static final String REPORT_PROPERTY = "urp.metrics.report";
+
+  /**
+   * System property that enables JFR events.
+   */
+  public static final String JFR_PROPERTY = "urp.metrics.jfr";
+
+  @Nullable
+  private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+  @Nullable
+  private static volatile MetricsRecorder recorder = recorderFromProperties();
+
+  private Metrics() {
+  }
+
+  /**
+   * Installs a recorder, {@code null} disables measurements.
+   *
+   * @param newRecorder the recorder of all threads
+   */
+  public static void setRecorder(@Nullable MetricsRecorder newRecorder) {
+    recorder = newRecorder;
+  }
+
+  /**
+   * Whether a recorder is installed.
+   *
+   * @return {@code true} if measurements are recorded
+   */
+  public static boolean isEnabled() {
+    return recorder != null;
+  }
+
+  /**
+   * Starts a timer.
+   *
+   * @return the start of the timer, {@code 0} if measurements are disabled
+   */
+  public static long start() {
+    return recorder == null ? 0 : System.nanoTime();
+  }
+
+  /**
+   * Records a callback of a check started at {@code start}.
+   *
+   * @param start the value of {@link #start()}
+   * @param check the class of the check
+   * @param phase the callback
+   */
+  public static void recordCheck(long start, Class<?> check, CheckPhase phase) {
+    final MetricsRecorder current = recorder;
+    if (current == null || start == 0) {
+      return;
+    }
+    current.recordCheck(check, phase, System.nanoTime() - start);
+  }
+
+  /**
+   * Records the bytes allocated by the current thread so far, if the JVM measures them.
+   */
+  public static void recordAllocation() {
+    final MetricsRecorder current = recorder;
+    if (current != null && THREADS != null) {
+      current.recordAllocation(Thread.currentThread().getName(),
+          THREADS.getCurrentThreadAllocatedBytes());
+    }
+  }
+
+  /**
+   * Records a stage of reading git changes started at {@code start}.
+   *
+   * @param start the value of {@link #start()}
+   * @param phase the stage
+   */
+  public static void recordGit(long start, GitPhase phase) {
+    final MetricsRecorder current = recorder;
+    if (current != null && start != 0) {
+      current.recordGit(phase, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records a file skipped because it has not been changed.
+   *
+   * @param source the class of the check, filter or runner that skipped the file
+   */
+  public static void recordSkippedFile(Class<?> source) {
+    final MetricsRecorder current = recorder;
+    if (current != null) {
+      current.recordSkippedFile(source);
+    }
+  }
+
+  @Nullable
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      return (com.sun.management.ThreadMXBean) bean;
+    }
+    return null;
+  }
+
+  @Nullable
+  private static MetricsRecorder recorderFromProperties() {
+    final String report = System.getProperty(REPORT_PROPERTY);
+    final boolean jfr = Boolean.getBoolean(JFR_PROPERTY);
+    if (report == null && !jfr) {
+      return null;
+    }
+    JsonMetricsReport json = null;
+    if (report != null) {
+      final JsonMetricsReport created = new JsonMetricsReport();
+      final Path path = Path.of(report);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> created.writeQuietly(path),
+          "urp-checkstyle-metrics-report"));
+      json = created;
+    }
+    if (!jfr) {
+      return json;
+    }
+    return json == null ? new JfrMetricsRecorder() : new Tee(json, new JfrMetricsRecorder());
+  }
+
+  /**
+   * Passes measurements to two recorders.
+   */
+  private static final class Tee implements MetricsRecorder {
+
+    private final MetricsRecorder first;
+    private final MetricsRecorder second;
+
+    private Tee(MetricsRecorder first, MetricsRecorder second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public void recordCheck(Class<?> check, CheckPhase phase, long nanos) {
+      first.recordCheck(check, phase, nanos);
+      second.recordCheck(check, phase, nanos);
+    }
+
+    @Override
+    public void recordSkippedFile(Class<?> source) {
+      first.recordSkippedFile(source);
+      second.recordSkippedFile(source);
+    }
+
+    @Override
+    public void recordGit(GitPhase phase, long nanos) {
+      first.recordGit(phase, nanos);
+      second.recordGit(phase, nanos);
+    }
+
+    @Override
+    public void recordAllocation(String thread, long allocatedBytes) {
+      first.recordAllocation(thread, allocatedBytes);
+      second.recordAllocation(thread, allocatedBytes);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.emirates.urp.metrics;
+
+/**
+ * Receives measurements of the checks, install an implementation with
+ * {@link Metrics#setRecorder(MetricsRecorder)}.
+ * <p>
+ * Methods are called on checker and git threads concurrently, implementations must be thread-safe
+ * and cheap: they run inside {@code visitToken} of every check.
+ */
+public interface MetricsRecorder {
+
+  /**
+   * Records a callback of a check.
+   *
+   * @param check the class of the check
+   * @param phase the callback
+   * @param nanos the time spent in the callback
+   */
+  void recordCheck(Class<?> check, CheckPhase phase, long nanos);
+
+  /**
+   * Records a file skipped because it has not been changed in the branch or since the last run.
+   *
+   * @param source the class of the check, filter or runner that skipped the file
+   */
+  void recordSkippedFile(Class<?> source);
+
+  /**
+   * Records a stage of reading git changes.
+   *
+   * @param phase the stage
+   * @param nanos the time spent in it
+   */
+  void recordGit(GitPhase phase, long nanos);
+
+  /**
+   * Records a sample of the bytes a thread has allocated since it started.
+   *
+   * @param thread         the name of the thread
+   * @param allocatedBytes the allocated bytes
+   */
+  void recordAllocation(String thread, long allocatedBytes);
+}
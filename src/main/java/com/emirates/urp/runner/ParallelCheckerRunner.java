@@ -0,0 +1,737 @@
+package com.emirates.urp.runner;
+
+import com.emirates.urp.metrics.AllocationSampler;
+import com.emirates.urp.metrics.Metrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean.OutputStreamOptions;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultLogger;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.checks.TranslationCheck;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs checkstyle over files on several threads.
+ * <p>
+ * Files are split into small units that threads take from a shared queue in the order of the
+ * files. Files that checks comparing several files look at, such as the bundles of
+ * {@code TranslationCheck}, are grouped by directory so that such checks see a whole directory at
+ * once, every other file goes into a chunk of at most {@value #CHUNK_SIZE} files. Every thread
+ * checks its units with its own {@link Checker} configured from the same configuration, with a
+ * {@link Checker#process(List)} call per unit: instances of checks are confined to one thread, and
+ * every {@link com.puppycrawl.tools.checkstyle.api.FileSetCheck} is started and finished once per
+ * unit. Events of a file are passed to the listeners as soon as all files before it are reported,
+ * in the same order a single {@link Checker} would report them. Events of checks that report when
+ * a unit is finished follow the last file of the unit. Git changes are shared by all threads
+ * through {@link com.emirates.urp.util.ChangeSetProvider}.
+ * <p>
+ * With a result cache, files whose content, configuration and changed lines are the same as in an
+ * earlier run are not checked again, their stored events are reported instead. See
+ * {@link ResultCache}. As with checkstyle's own cache, checks that compare several files only see
+ * the files that are checked again, and their events on finish are not stored.
+ * <p>
+ * Use the builder to create instances: {@code ParallelCheckerRunner.builder()}.
+ */
+@Slf4j
+public final class ParallelCheckerRunner {
+
+  private static final String CACHE_FILE_PROPERTY = "cacheFile";
+
+  private static final String BASEDIR_PROPERTY = "basedir";
+
+  /**
+   * The most files of a unit that no check compares with other files, small enough for threads to
+   * share the work evenly and to report early.
+   */
+  private static final int CHUNK_SIZE = 8;
+
+  /**
+   * Checks that compare files of a directory, their files are checked together.
+   */
+  private static final List<Class<? extends AbstractFileSetCheck>> DIRECTORY_CHECKS =
+      List.of(TranslationCheck.class);
+
+  private static final ThreadFactory CHECKER_THREAD_FACTORY = new ThreadFactoryBuilder()
+      .setNameFormat("urp-checkstyle-checker-%d")
+      .setDaemon(true)
+      .build();
+
+  private final Configuration configuration;
+
+  private final int threads;
+
+  private final ClassLoader moduleClassLoader;
+
+  private final List<AuditListener> listeners;
+
+  @Nullable
+  private final Path resultCacheFile;
+
+  /**
+   * The base directory checkers strip from file names, {@code null} if it is not configured.
+   */
+  @Nullable
+  private final String basedir;
+
+  private ParallelCheckerRunner(Builder builder) {
+    this.configuration = builder.configuration;
+    this.threads = builder.threads;
+    this.moduleClassLoader = builder.moduleClassLoader;
+    this.listeners = List.copyOf(builder.listeners);
+    this.resultCacheFile = builder.resultCacheFile;
+    this.basedir = builder.basedir;
+  }
+
+  /**
+   * Creates a builder for {@link ParallelCheckerRunner}.
+   *
+   * @return A new builder with default values
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Checks the files and reports events of each file to the listeners in the order of the list.
+   *
+   * @param files the files to check
+   * @return the number of errors found
+   * @throws CheckstyleException if a checker couldn't be configured or a file couldn't be checked
+   */
+  public int process(List<File> files) throws CheckstyleException {
+    final AuditEvent auditEvent = new AuditEvent(this);
+    listeners.forEach(listener -> listener.auditStarted(auditEvent));
+    final ResultCache cache = resultCacheFile == null ? null
+        : ResultCache.open(resultCacheFile, configuration, moduleClassLoader);
+    final List<List<Integer>> units = partition(files, directoryCheckExtensions());
+    final ExecutorService executor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(threads, units.size())), CHECKER_THREAD_FACTORY);
+    final Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+    int errors = 0;
+    int cached = 0;
+    try {
+      final CompletionService<UnitResult> completion = new ExecutorCompletionService<>(executor);
+      for (List<Integer> unit : units) {
+        completion.submit(() -> process(files, unit, cache, workers));
+      }
+      final FileResult[] results = new FileResult[files.size()];
+      final UnitResult[] lastFileUnits = new UnitResult[files.size()];
+      int next = 0;
+      for (int i = 0; i < units.size(); i++) {
+        final UnitResult unitResult = await(completion);
+        for (int j = 0; j < unitResult.files.size(); j++) {
+          results[unitResult.files.get(j)] = unitResult.results.get(j);
+        }
+        lastFileUnits[unitResult.files.get(unitResult.files.size() - 1)] = unitResult;
+        for (; next < results.length && results[next] != null; next++) {
+          final FileResult fileResult = results[next];
+          results[next] = null;
+          report(fileResult.events);
+          errors += fileResult.errors;
+          if (fileResult.cached) {
+            cached++;
+          } else if (cache != null && fileResult.key != null && fileResult.result != null) {
+            cache.put(fileResult.key, fileResult.result);
+          }
+          if (lastFileUnits[next] != null) {
+            report(lastFileUnits[next].finishEvents);
+            errors += lastFileUnits[next].finishErrors;
+            lastFileUnits[next] = null;
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+      workers.forEach(Worker::destroy);
+      if (cache != null) {
+        cache.flush();
+      }
+    }
+    if (cache != null) {
+      log.info("Reused results of {} of {} files", cached, files.size());
+    }
+    listeners.forEach(listener -> listener.auditFinished(auditEvent));
+    return errors;
+  }
+
+  /**
+   * Checks files with a configuration, prints violations to the standard output and exits with the
+   * number of errors.
+   * <p>
+   * Usage: {@code -c <configuration file> [-t <threads>] [-r <result cache file>]
+   * <file or directory>...}, directories are checked recursively in the order of paths.
+   *
+   * @param args the command line arguments
+   * @throws CheckstyleException if the configuration couldn't be loaded or a file couldn't be
+   *                             checked
+   * @throws IOException         if a directory couldn't be listed
+   */
+  public static void main(String[] args) throws CheckstyleException, IOException {
+    String configurationFile = null;
+    final Builder builder = builder();
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-c".equals(args[i]) && i + 1 < args.length) {
+        configurationFile = args[++i];
+      } else if ("-t".equals(args[i]) && i + 1 < args.length) {
+        builder.threads(Integer.parseInt(args[++i]));
+      } else if ("-r".equals(args[i]) && i + 1 < args.length) {
+        builder.resultCache(Path.of(args[++i]));
+      } else {
+        try (Stream<Path> paths = Files.walk(Path.of(args[i]))) {
+          paths.filter(Files::isRegularFile).sorted().map(Path::toFile).forEach(files::add);
+        }
+      }
+    }
+    if (configurationFile == null) {
+      throw new IllegalArgumentException(
+          "Usage: -c <configuration file> [-t <threads>] [-r <result cache file>] "
+              + "<file or directory>...");
+    }
+    final int errors = builder
+        .configuration(ConfigurationLoader.loadConfiguration(configurationFile,
+            new PropertiesExpander(System.getProperties())))
+        .addListener(new DefaultLogger(System.out, OutputStreamOptions.NONE))
+        .build()
+        .process(files);
+    System.exit(errors);
+  }
+
+  /**
+   * Splits files into units in the order of their first files. Files with an extension of a check
+   * that compares files of a directory make one unit per directory, other files are cut into
+   * chunks of consecutive files. Every unit lists its files in the order of the list.
+   *
+   * @param directoryExtensions extensions of files checked by directory, an empty array for all
+   *                            files, {@code null} if there are no such checks
+   * @return indexes of files in every unit
+   */
+  private static List<List<Integer>> partition(List<File> files,
+      @Nullable String[] directoryExtensions) {
+    final Map<File, List<Integer>> directories = new HashMap<>();
+    final List<List<Integer>> returnValue = new ArrayList<>();
+    List<Integer> chunk = null;
+    for (int i = 0; i < files.size(); i++) {
+      final File file = files.get(i);
+      if (directoryExtensions != null
+          && CommonUtil.matchesFileExtension(file, directoryExtensions)) {
+        final int index = i;
+        directories.computeIfAbsent(file.getAbsoluteFile().getParentFile(), directory -> {
+          final List<Integer> unit = new ArrayList<>();
+          returnValue.add(unit);
+          return unit;
+        }).add(index);
+      } else {
+        if (chunk == null || chunk.size() == CHUNK_SIZE) {
+          chunk = new ArrayList<>(CHUNK_SIZE);
+          returnValue.add(chunk);
+        }
+        chunk.add(i);
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Finds extensions of files that checks comparing files of a directory look at.
+   *
+   * @return the extensions, an empty array if such a check looks at all files, {@code null} if
+   *     there are no such checks
+   */
+  @Nullable
+  private String[] directoryCheckExtensions() throws CheckstyleException {
+    final ModuleFactory factory = new PackageObjectFactory(
+        PackageNamesLoader.getPackageNames(moduleClassLoader), moduleClassLoader);
+    final Set<String> returnValue = new LinkedHashSet<>();
+    boolean found = false;
+    for (Configuration child : configuration.getChildren()) {
+      final Object module = factory.createModule(child.getName());
+      if (DIRECTORY_CHECKS.stream().anyMatch(check -> check.isInstance(module))) {
+        final AbstractFileSetCheck check = (AbstractFileSetCheck) module;
+        check.configure(child);
+        if (check.getFileExtensions().length == 0) {
+          return new String[0];
+        }
+        returnValue.addAll(Arrays.asList(check.getFileExtensions()));
+        found = true;
+      }
+    }
+    return found ? returnValue.toArray(new String[0]) : null;
+  }
+
+  /**
+   * Reports stored results of files whose keys match and checks the rest of the unit with an idle
+   * checker of the runner, or a new one if all are busy.
+   */
+  private UnitResult process(List<File> files, List<Integer> unit, @Nullable ResultCache cache,
+      Queue<Worker> workers) throws CheckstyleException {
+    final FileResult[] results = new FileResult[unit.size()];
+    final List<Integer> checked = new ArrayList<>();
+    final List<ResultCache.Key> keys = new ArrayList<>();
+    for (int i = 0; i < unit.size(); i++) {
+      final File file = files.get(unit.get(i));
+      ResultCache.Key key = null;
+      if (cache != null) {
+        try {
+          key = cache.key(file);
+        } catch (UncheckedIOException e) {
+          // the checker reports the unreadable file
+        }
+      }
+      final ResultCache.Result stored = key == null ? null : cache.find(key).orElse(null);
+      if (stored == null) {
+        checked.add(i);
+        keys.add(key);
+      } else {
+        Metrics.recordSkippedFile(getClass());
+        results[i] = replay(stored);
+      }
+    }
+    final Worker idle = workers.poll();
+    final Worker worker = idle == null ? new Worker() : idle;
+    try {
+      final List<FileResult> checkedResults = worker.process(
+          checked.stream().map(i -> files.get(unit.get(i))).toList());
+      for (int i = 0; i < checked.size(); i++) {
+        results[checked.get(i)] = checkedResults.get(i).withKey(keys.get(i));
+      }
+      final List<Consumer<AuditListener>> finishEvents = new ArrayList<>();
+      int finishErrors = 0;
+      for (FileEvents events : worker.finishedFiles) {
+        finishEvents.addAll(events.events);
+        finishErrors += events.errors;
+      }
+      return new UnitResult(unit, Arrays.asList(results), finishEvents, finishErrors);
+    } finally {
+      workers.add(worker);
+    }
+  }
+
+  /**
+   * Creates events of stored results of a file.
+   */
+  private FileResult replay(ResultCache.Result stored) {
+    final List<Consumer<AuditListener>> events = new ArrayList<>();
+    int errors = 0;
+    final String fileName = stored.getFileName();
+    if (fileName != null) {
+      final AuditEvent fileEvent = new AuditEvent(this, fileName);
+      events.add(listener -> listener.fileStarted(fileEvent));
+      for (Violation violation : stored.getViolations()) {
+        final AuditEvent event = new AuditEvent(this, fileName, violation);
+        events.add(listener -> listener.addError(event));
+        if (violation.getSeverityLevel() == SeverityLevel.ERROR) {
+          errors++;
+        }
+      }
+      events.add(listener -> listener.fileFinished(fileEvent));
+    }
+    return new FileResult(events, errors, null, null, true);
+  }
+
+  private void report(List<Consumer<AuditListener>> events) {
+    for (Consumer<AuditListener> event : events) {
+      listeners.forEach(event);
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        log.warn("Checker threads didn't stop in time");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static UnitResult await(CompletionService<UnitResult> completion)
+      throws CheckstyleException {
+    try {
+      return completion.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CheckstyleException("Interrupted while checking files", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof CheckstyleException) {
+        throw (CheckstyleException) cause;
+      }
+      throw new CheckstyleException("Couldn't check files", cause);
+    }
+  }
+
+  /**
+   * A checker of one thread at a time together with the listener that buffers its events by file.
+   * The checker also gets a file filter that accepts everything: it is asked only about files the
+   * configured filters accept, right before they are started, so events of a file that is not
+   * announced by the filter come from checks finishing the unit.
+   */
+  private final class Worker implements AuditListener, BeforeExecutionFileFilter {
+
+    private final Checker checker = new Checker();
+
+    /**
+     * Events of files checked one by one, in the order they are started.
+     */
+    private final List<FileEvents> checkedFiles = new ArrayList<>();
+
+    /**
+     * Events of files reported while checks finish the unit.
+     */
+    private final List<FileEvents> finishedFiles = new ArrayList<>();
+
+    /**
+     * The file name the checker is about to start, {@code null} if no file was accepted since the
+     * last one started.
+     */
+    @Nullable
+    private String accepted;
+
+    private FileEvents current;
+
+    private Worker() throws CheckstyleException {
+      checker.setModuleClassLoader(moduleClassLoader);
+      checker.configure(configuration);
+      checker.addListener(this);
+      checker.addListener(new AllocationSampler());
+      checker.addBeforeExecutionFileFilter(this);
+    }
+
+    /**
+     * Checks the files with a single run of the checker.
+     *
+     * @param files the files of the unit
+     * @return results of the files in the same order, files not accepted by filters have no
+     *     events
+     */
+    private List<FileResult> process(List<File> files) throws CheckstyleException {
+      checkedFiles.clear();
+      finishedFiles.clear();
+      accepted = null;
+      current = null;
+      checker.process(files);
+      final List<FileResult> returnValue = new ArrayList<>(files.size());
+      int checked = 0;
+      for (File file : files) {
+        final String fileName =
+            CommonUtil.relativizeAndNormalizePath(basedir, file.getAbsolutePath());
+        if (checked < checkedFiles.size()
+            && checkedFiles.get(checked).fileName.equals(fileName)) {
+          returnValue.add(checkedFiles.get(checked++).toFileResult());
+        } else {
+          returnValue.add(new FileEvents(null, false).toFileResult());
+        }
+      }
+      return returnValue;
+    }
+
+    private void destroy() {
+      checker.destroy();
+    }
+
+    @Override
+    public boolean accept(String uri) {
+      accepted = uri;
+      return true;
+    }
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+      // reported once by the runner
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+      // reported once by the runner
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+      current = new FileEvents(event.getFileName(), event.getFileName().equals(accepted));
+      accepted = null;
+      current.events.add(listener -> listener.fileStarted(event));
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+      current.events.add(listener -> listener.fileFinished(event));
+      (current.checked ? checkedFiles : finishedFiles).add(current);
+      current = null;
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+      current.violations.add(event.getViolation());
+      if (event.getSeverityLevel() == SeverityLevel.ERROR) {
+        current.errors++;
+      }
+      current.events.add(listener -> listener.addError(event));
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+      current.failed = true;
+      // the same as the error counter of a checker
+      current.errors++;
+      current.events.add(listener -> listener.addException(event, throwable));
+    }
+  }
+
+  /**
+   * Events a checker reported between the start and the finish of a file.
+   */
+  private static final class FileEvents {
+
+    /**
+     * The file name of the events, {@code null} if the file wasn't started.
+     */
+    @Nullable
+    private final String fileName;
+
+    /**
+     * Whether the file was checked on its own rather than reported by a finishing check.
+     */
+    private final boolean checked;
+
+    private final List<Consumer<AuditListener>> events = new ArrayList<>();
+
+    private final List<Violation> violations = new ArrayList<>();
+
+    private int errors;
+
+    private boolean failed;
+
+    private FileEvents(@Nullable String fileName, boolean checked) {
+      this.fileName = fileName;
+      this.checked = checked;
+    }
+
+    private FileResult toFileResult() {
+      return new FileResult(events, errors, null,
+          failed ? null : new ResultCache.Result(fileName, violations), false);
+    }
+  }
+
+  /**
+   * Events of a checked file and the number of errors among them.
+   */
+  private static final class FileResult {
+
+    private final List<Consumer<AuditListener>> events;
+
+    private final int errors;
+
+    /**
+     * The key the result is stored with, {@code null} without a cache.
+     */
+    @Nullable
+    private final ResultCache.Key key;
+
+    /**
+     * The result to store, {@code null} if the file failed with an exception.
+     */
+    @Nullable
+    private final ResultCache.Result result;
+
+    /**
+     * Whether the events come from the cache.
+     */
+    private final boolean cached;
+
+    private FileResult(List<Consumer<AuditListener>> events, int errors,
+        @Nullable ResultCache.Key key, @Nullable ResultCache.Result result, boolean cached) {
+      this.events = events;
+      this.errors = errors;
+      this.key = key;
+      this.result = result;
+      this.cached = cached;
+    }
+
+    private FileResult withKey(@Nullable ResultCache.Key key) {
+      return new FileResult(events, errors, key, result, cached);
+    }
+  }
+
+  /**
+   * Results of the files of a unit and events of checks that finished the unit.
+   */
+  private static final class UnitResult {
+
+    /**
+     * Indexes of the files of the unit in the list of all files.
+     */
+    private final List<Integer> files;
+
+    /**
+     * Results of the files, in the order of {@link #files}.
+     */
+    private final List<FileResult> results;
+
+    private final List<Consumer<AuditListener>> finishEvents;
+
+    private final int finishErrors;
+
+    private UnitResult(List<Integer> files, List<FileResult> results,
+        List<Consumer<AuditListener>> finishEvents, int finishErrors) {
+      this.files = files;
+      this.results = results;
+      this.finishEvents = finishEvents;
+      this.finishErrors = finishErrors;
+    }
+  }
+
+  /**
+   * Builds instances of {@link ParallelCheckerRunner}.
+   */
+  public static final class Builder {
+
+    private Configuration configuration;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private ClassLoader moduleClassLoader = Checker.class.getClassLoader();
+
+    private final List<AuditListener> listeners = new ArrayList<>();
+
+    private Path resultCacheFile;
+
+    private String basedir;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the configuration of the checkers, its root is the {@code Checker} module.
+     *
+     * @param configuration the new value, without a {@code cacheFile} property
+     * @return {@code this} builder for use in a chained invocation
+     * @throws IllegalArgumentException if the configuration sets a cache file, the file can't be
+     *                                  shared by checkers of several threads, see
+     *                                  {@link #resultCache(Path)}
+     */
+    @CanIgnoreReturnValue
+    public Builder configuration(Configuration configuration) {
+      if (Arrays.asList(configuration.getPropertyNames()).contains(CACHE_FILE_PROPERTY)) {
+        throw new IllegalArgumentException("The cache file is not supported by the parallel "
+            + "runner, checkers of several threads can't share it, use the result cache instead");
+      }
+      this.configuration = configuration;
+      this.basedir = null;
+      if (Arrays.asList(configuration.getPropertyNames()).contains(BASEDIR_PROPERTY)) {
+        try {
+          this.basedir = configuration.getProperty(BASEDIR_PROPERTY);
+        } catch (CheckstyleException e) {
+          throw new IllegalArgumentException("Couldn't read the base directory", e);
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Sets the number of worker threads, the number of available processors by default.
+     *
+     * @param threads the new value, at least {@code 1}
+     * @return {@code this} builder for use in a chained invocation
+     * @throws IllegalArgumentException if the value is less than {@code 1}
+     */
+    @CanIgnoreReturnValue
+    public Builder threads(int threads) {
+      if (threads < 1) {
+        throw new IllegalArgumentException("Threads must be positive: " + threads);
+      }
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Sets the class loader of checkstyle modules, the class loader of checkstyle by default.
+     *
+     * @param moduleClassLoader the new value
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public Builder moduleClassLoader(ClassLoader moduleClassLoader) {
+      this.moduleClassLoader = Objects.requireNonNull(moduleClassLoader, "moduleClassLoader");
+      return this;
+    }
+
+    /**
+     * Adds a listener of events of all files.
+     *
+     * @param listener the listener
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public Builder addListener(AuditListener listener) {
+      this.listeners.add(Objects.requireNonNull(listener, "listener"));
+      return this;
+    }
+
+    /**
+     * Sets the file results are kept in between runs, files with the same content, configuration
+     * and changed lines are not checked again. There is no cache by default.
+     *
+     * @param resultCacheFile the cache file, created if it doesn't exist
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public Builder resultCache(Path resultCacheFile) {
+      this.resultCacheFile = Objects.requireNonNull(resultCacheFile, "resultCacheFile");
+      return this;
+    }
+
+    /**
+     * Builds a new {@link ParallelCheckerRunner}.
+     *
+     * @return An immutable instance of ParallelCheckerRunner
+     * @throws IllegalStateException if the configuration is not set
+     */
+    public ParallelCheckerRunner build() {
+      if (configuration == null) {
+        throw new IllegalStateException("The configuration is not set");
+      }
+      return new ParallelCheckerRunner(this);
+    }
+  }
+}
@@ -0,0 +1,573 @@
+package com.emirates.urp.runner;
+
+import com.emirates.urp.util.ChangeSetProvider;
+import com.emirates.urp.util.ChangedLineIndex;
+import com.emirates.urp.util.DiffScope;
+import com.emirates.urp.util.GitChange;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Violations of checked files kept between runs of {@link ParallelCheckerRunner}.
+ * <p>
+ * Checkstyle's own {@code cacheFile} only knows the content of a file and the configuration, but
+ * the git-aware checks and the filter of this project also depend on lines changed in the branch.
+ * Here a result is keyed by three digests: of the content of the file, of the configuration
+ * together with the files it refers to, and of the changed-line ranges of the file in every change
+ * set the configured git-aware modules use. A file is skipped only when all three are unchanged.
+ * <p>
+ * The file is append-only: results of a run are appended as records and the last record of a path
+ * wins. When most of the records are outdated the file is compacted, written next to the cache and
+ * moved over it. File layout, all numbers are big-endian:
+ * <pre>
+ * int magic, int version
+ * record:
+ *   string path, byte[32] content digest, byte[32] configuration digest, byte[32] diff digest
+ *   nullable string file name of the events, {@code null} if checkstyle skipped the file
+ *   int number of violations
+ *     int line, int column, int column char index, int token type, string severity
+ *     nullable string module id, nullable string key, string source class, string message
+ * </pre>
+ * where {@code string} is an int length followed by UTF-8 bytes, and a {@code null} string has
+ * length {@code -1}.
+ */
+@Slf4j
+final class ResultCache {
+
+  private static final int MAGIC = 0x55525052;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private static final int DIGEST_SIZE = 32;
+
+  /**
+   * Number of outdated records that never triggers compaction.
+   */
+  private static final int MIN_OUTDATED_RECORDS = 64;
+
+  /**
+   * Message pattern of restored violations, the stored message is the only argument.
+   */
+  private static final String MESSAGE_PATTERN = "{0}";
+
+  private final Path file;
+
+  private final ClassLoader moduleClassLoader;
+
+  private final byte[] configurationDigest;
+
+  private final List<DiffScope> diffScopes;
+
+  private final ConcurrentMap<String, Record> records = new ConcurrentHashMap<>();
+
+  /**
+   * Encoded records added since the file was loaded or last flushed.
+   */
+  private final ByteArrayOutputStream appended = new ByteArrayOutputStream();
+
+  /**
+   * Number of records in {@link #appended}.
+   */
+  private int appendedRecords;
+
+  /**
+   * Number of records in the file, outdated ones included.
+   */
+  private int storedRecords;
+
+  /**
+   * Whether the file has to be written from scratch: it is missing, unreadable or has a torn
+   * record at the end.
+   */
+  private boolean rewrite;
+
+  private ResultCache(Path file, Configuration configuration, ClassLoader moduleClassLoader) {
+    this.file = file;
+    this.moduleClassLoader = moduleClassLoader;
+    this.configurationDigest = digestConfiguration(configuration);
+    this.diffScopes = DiffScope.collect(configuration, moduleClassLoader);
+  }
+
+  /**
+   * Loads results stored in the file for the configuration.
+   *
+   * @param file              the cache file, created on the first flush
+   * @param configuration     the configuration files are checked with
+   * @param moduleClassLoader the class loader of checkstyle modules
+   * @return the cache
+   * @throws IllegalArgumentException if a module of the configuration couldn't be configured
+   */
+  static ResultCache open(Path file, Configuration configuration,
+      ClassLoader moduleClassLoader) {
+    final ResultCache cache = new ResultCache(file, configuration, moduleClassLoader);
+    cache.load();
+    return cache;
+  }
+
+  /**
+   * Computes the key of the file as it is now. Reads the file and, on the first call, parses git
+   * changes the configured git-aware modules use.
+   *
+   * @param checkedFile the file to check
+   * @return the key of the results of the file
+   * @throws UncheckedIOException if the file couldn't be read
+   */
+  Key key(File checkedFile) {
+    final String path = checkedFile.getAbsolutePath();
+    final byte[] content;
+    try {
+      content = Files.readAllBytes(checkedFile.toPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new Key(path, newDigest().digest(content), configurationDigest, digestDiff(path));
+  }
+
+  /**
+   * Finds results stored for the key.
+   *
+   * @param key the key of the file
+   * @return the results, empty if the file, its configuration or its changed lines differ from
+   *     the stored ones
+   */
+  Optional<Result> find(Key key) {
+    final Record record = records.get(key.path);
+    if (record == null || !record.key.equals(key)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(record.decode(moduleClassLoader));
+    } catch (ClassNotFoundException e) {
+      log.debug("Ignoring results of '{}', a module is not loaded", key.path, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Stores results of the file. Records are kept in memory until {@link #flush()}.
+   *
+   * @param key    the key of the file when it was checked
+   * @param result events of the file
+   */
+  void put(Key key, Result result) {
+    final Record record = Record.encode(key, result);
+    records.put(key.path, record);
+    synchronized (appended) {
+      appended.writeBytes(record.bytes);
+      appendedRecords++;
+    }
+  }
+
+  /**
+   * Appends records added since the last flush to the file, or rewrites the file with the latest
+   * record of each path if most of its records are outdated.
+   */
+  void flush() {
+    try {
+      synchronized (appended) {
+        if (appendedRecords == 0 && !rewrite) {
+          return;
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        final int total = storedRecords + appendedRecords;
+        if (rewrite || total - records.size() > Math.max(MIN_OUTDATED_RECORDS, records.size())) {
+          compact();
+          storedRecords = records.size();
+          rewrite = false;
+        } else {
+          Files.write(file, appended.toByteArray(), StandardOpenOption.APPEND);
+          storedRecords = total;
+        }
+        appended.reset();
+        appendedRecords = 0;
+      }
+    } catch (IOException e) {
+      log.warn("Couldn't write result cache '{}'", file, e);
+    }
+  }
+
+  private void compact() throws IOException {
+    final Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(),
+        file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(temporary))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        for (Record record : new TreeMap<>(records).values()) {
+          output.write(record.bytes);
+        }
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    log.debug("Compacted result cache '{}' to {} records", file, records.size());
+  }
+
+  private void load() {
+    final byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      rewrite = true;
+      return;
+    } catch (IOException e) {
+      log.debug("Ignoring unreadable result cache '{}'", file, e);
+      rewrite = true;
+      return;
+    }
+    final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    try {
+      if (bytes.length < HEADER_SIZE || input.readInt() != MAGIC || input.readInt() != VERSION) {
+        rewrite = true;
+        return;
+      }
+      int offset = HEADER_SIZE;
+      while (offset < bytes.length) {
+        final Record record = Record.read(input, bytes, offset);
+        records.put(record.key.path, record);
+        storedRecords++;
+        offset += record.bytes.length;
+      }
+    } catch (IOException | RuntimeException e) {
+      // a run that was killed while appending leaves a torn record behind
+      log.debug("Ignoring the end of result cache '{}'", file, e);
+      rewrite = true;
+    }
+    log.debug("Loaded {} results from '{}'", records.size(), file);
+  }
+
+  private byte[] digestDiff(String path) {
+    final MessageDigest digest = newDigest();
+    for (DiffScope scope : diffScopes) {
+      final Optional<GitChange> change = scope.getChangeSet().find(path);
+      digest.update((byte) (change.isPresent() ? 1 : 0));
+      change.ifPresent(it -> {
+        update(digest, it.addedLineIndex());
+        update(digest, it.deletedLineIndex());
+      });
+    }
+    return digest.digest();
+  }
+
+  private static void update(MessageDigest digest, ChangedLineIndex index) {
+    updateInt(digest, index.rangeCount());
+    for (int range = 0; range < index.rangeCount(); range++) {
+      updateInt(digest, index.rangeBegin(range));
+      updateInt(digest, index.rangeEnd(range));
+    }
+  }
+
+  private static void updateInt(MessageDigest digest, int value) {
+    digest.update((byte) (value >>> 24));
+    digest.update((byte) (value >>> 16));
+    digest.update((byte) (value >>> 8));
+    digest.update((byte) value);
+  }
+
+  /**
+   * Digests the configuration tree, the content of files its properties point to and versions of
+   * checkstyle and these checks.
+   */
+  private static byte[] digestConfiguration(Configuration configuration) {
+    final MessageDigest digest = newDigest();
+    updateString(digest, String.valueOf(Checker.class.getPackage().getImplementationVersion()));
+    updateString(digest,
+        String.valueOf(ResultCache.class.getPackage().getImplementationVersion()));
+    updateConfiguration(digest, configuration);
+    return digest.digest();
+  }
+
+  private static void updateConfiguration(MessageDigest digest, Configuration configuration) {
+    updateString(digest, configuration.getName());
+    final String[] names = configuration.getPropertyNames();
+    Arrays.sort(names);
+    for (String name : names) {
+      final String value = getProperty(configuration, name);
+      updateString(digest, name);
+      updateString(digest, value);
+      updateExternalFile(digest, value);
+    }
+    for (Map.Entry<String, String> message : new TreeMap<>(configuration.getMessages())
+        .entrySet()) {
+      updateString(digest, message.getKey());
+      updateString(digest, message.getValue());
+    }
+    for (Configuration child : configuration.getChildren()) {
+      updateConfiguration(digest, child);
+    }
+    updateString(digest, "");
+  }
+
+  /**
+   * Adds the content of a file a property points to, such as suppressions, so editing it
+   * invalidates results.
+   */
+  private static void updateExternalFile(MessageDigest digest, String value) {
+    try {
+      final Path path = Path.of(value);
+      if (Files.isRegularFile(path)) {
+        digest.update(Files.readAllBytes(path));
+      }
+    } catch (InvalidPathException | IOException e) {
+      // not a readable file, the value itself is digested
+    }
+  }
+
+  private static void updateString(MessageDigest digest, String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    updateInt(digest, bytes.length);
+    digest.update(bytes);
+  }
+
+  private static String getProperty(Configuration configuration, String name) {
+    try {
+      return configuration.getProperty(name);
+    } catch (CheckstyleException e) {
+      throw new IllegalArgumentException("Couldn't read property '" + name + "' of "
+          + configuration.getName(), e);
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+    }
+  }
+
+  /**
+   * Identifies results of a file: its path and digests of its content, the configuration and its
+   * changed lines.
+   */
+  static final class Key {
+
+    private final String path;
+    private final byte[] content;
+    private final byte[] configuration;
+    private final byte[] diff;
+
+    private Key(String path, byte[] content, byte[] configuration, byte[] diff) {
+      this.path = path;
+      this.content = content;
+      this.configuration = configuration;
+      this.diff = diff;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+      if (this == another) {
+        return true;
+      }
+      if (!(another instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) another;
+      return path.equals(key.path) && Arrays.equals(content, key.content)
+          && Arrays.equals(configuration, key.configuration) && Arrays.equals(diff, key.diff);
+    }
+
+    @Override
+    public int hashCode() {
+      return path.hashCode() * 31 + Arrays.hashCode(content);
+    }
+  }
+
+  /**
+   * Events of a checked file: the file name checkstyle reported and the violations that passed
+   * filters.
+   */
+  static final class Result {
+
+    @Nullable
+    private final String fileName;
+
+    private final List<Violation> violations;
+
+    /**
+     * Creates a result.
+     *
+     * @param fileName   the file name of the events, {@code null} if checkstyle skipped the file
+     * @param violations the reported violations in order
+     */
+    Result(@Nullable String fileName, List<Violation> violations) {
+      this.fileName = fileName;
+      this.violations = List.copyOf(violations);
+    }
+
+    /**
+     * The file name of the events.
+     *
+     * @return the file name, {@code null} if checkstyle skipped the file without events
+     */
+    @Nullable
+    String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * The reported violations in order.
+     *
+     * @return the violations
+     */
+    List<Violation> getViolations() {
+      return violations;
+    }
+  }
+
+  /**
+   * A stored result in its encoded form, decoded on a hit only.
+   */
+  private static final class Record {
+
+    private final Key key;
+
+    private final byte[] bytes;
+
+    private Record(Key key, byte[] bytes) {
+      this.key = key;
+      this.bytes = bytes;
+    }
+
+    private static Record encode(Key key, Result result) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream output = new DataOutputStream(bytes)) {
+        writeString(output, key.path);
+        output.write(key.content);
+        output.write(key.configuration);
+        output.write(key.diff);
+        writeString(output, result.fileName);
+        output.writeInt(result.violations.size());
+        for (Violation violation : result.violations) {
+          output.writeInt(violation.getLineNo());
+          output.writeInt(violation.getColumnNo());
+          output.writeInt(violation.getColumnCharIndex());
+          output.writeInt(violation.getTokenType());
+          writeString(output, violation.getSeverityLevel().name());
+          writeString(output, violation.getModuleId());
+          writeString(output, violation.getKey());
+          writeString(output, violation.getSourceName());
+          writeString(output, violation.getViolation());
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return new Record(key, bytes.toByteArray());
+    }
+
+    /**
+     * Reads the key of the record at the offset and skips its violations.
+     */
+    private static Record read(DataInputStream input, byte[] file, int offset)
+        throws IOException {
+      final int before = input.available();
+      final Key key = new Key(readString(input), readDigest(input), readDigest(input),
+          readDigest(input));
+      readString(input);
+      final int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        input.skipNBytes(4 * Integer.BYTES);
+        for (int string = 0; string < 5; string++) {
+          readString(input);
+        }
+      }
+      final int length = before - input.available();
+      return new Record(key, Arrays.copyOfRange(file, offset, offset + length));
+    }
+
+    private Result decode(ClassLoader classLoader) throws ClassNotFoundException {
+      final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+      try {
+        readString(input);
+        input.skipNBytes(3 * DIGEST_SIZE);
+        final String fileName = readString(input);
+        final int count = input.readInt();
+        final List<Violation> violations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          final int line = input.readInt();
+          final int column = input.readInt();
+          final int columnCharIndex = input.readInt();
+          final int tokenType = input.readInt();
+          final SeverityLevel severity = SeverityLevel.valueOf(readString(input));
+          final String moduleId = readString(input);
+          final String messageKey = readString(input);
+          final Class<?> sourceClass = Class.forName(readString(input), false, classLoader);
+          final String message = readString(input);
+          violations.add(new Violation(line, column, columnCharIndex, tokenType, null,
+              messageKey, new Object[] {message}, severity, moduleId, sourceClass,
+              MESSAGE_PATTERN));
+        }
+        return new Result(fileName, violations);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static byte[] readDigest(DataInputStream input) throws IOException {
+      final byte[] digest = new byte[DIGEST_SIZE];
+      input.readFully(digest);
+      return digest;
+    }
+
+    @Nullable
+    private static String readString(DataInputStream input) throws IOException {
+      final int length = input.readInt();
+      if (length < 0) {
+        return null;
+      }
+      if (length > input.available()) {
+        throw new EOFException("String of " + length + " bytes exceeds the file");
+      }
+      final byte[] bytes = new byte[length];
+      input.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, @Nullable String value)
+        throws IOException {
+      if (value == null) {
+        output.writeInt(-1);
+        return;
+      }
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.emirates.urp.util;
+
+import com.google.common.base.MoreObjects;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Git changes of a branch indexed by the repository relative path of the changed file.
+ * <p>
+ * Paths are normalized to the form git uses: relative to the root of the work tree and separated
+ * with {@code '/'}. Lookups by absolute file path, as checkstyle reports them, are resolved against
+ * {@link #getRepositoryRoot()} and answered with a single hash lookup.
+ */
+public final class ChangeSet implements Iterable<GitChange> {
+
+  private static final ChangeSet EMPTY = new ChangeSet(null, Collections.emptyMap());
+
+  @Nullable
+  private final Path repositoryRoot;
+
+  private final Map<String, GitChange> changesByPath;
+
+  private ChangeSet(@Nullable Path repositoryRoot, Map<String, GitChange> changesByPath) {
+    this.repositoryRoot = repositoryRoot;
+    this.changesByPath = changesByPath;
+  }
+
+  /**
+   * Returns a change set without any change.
+   *
+   * @return the empty change set
+   */
+  public static ChangeSet empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates a change set of the given repository. Changes keep their order, a later change of the
+   * same path replaces an earlier one.
+   *
+   * @param repositoryRoot the root of the work tree the paths of changes are relative to
+   * @param changes        changes of the branch
+   * @return the change set
+   */
+  public static ChangeSet of(Path repositoryRoot, Iterable<? extends GitChange> changes) {
+    final Map<String, GitChange> changesByPath = new LinkedHashMap<>();
+    for (GitChange change : changes) {
+      changesByPath.put(normalize(change.path()), change);
+    }
+    return new ChangeSet(repositoryRoot.toAbsolutePath().normalize(),
+        Collections.unmodifiableMap(changesByPath));
+  }
+
+  /**
+   * Converts a path to the form used as a key: {@code '/'} separated, without leading {@code "./"}
+   * or {@code "/"}.
+   *
+   * @param path a repository relative path
+   * @return the normalized path
+   */
+  public static String normalize(String path) {
+    String normalized = path.replace('\\', '/');
+    while (normalized.startsWith("./")) {
+      normalized = normalized.substring(2);
+    }
+    while (normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    return normalized;
+  }
+
+  /**
+   * The root of the work tree the paths are relative to.
+   *
+   * @return the repository root, {@code null} for the empty change set
+   */
+  @Nullable
+  public Path getRepositoryRoot() {
+    return repositoryRoot;
+  }
+
+  /**
+   * Finds changes of the file. An absolute path is resolved against the repository root, a
+   * relative path is treated as relative to the root.
+   *
+   * @param filePath the path of the file
+   * @return changes of the file, empty if the file has not been changed or is outside the
+   *     repository
+   */
+  public Optional<GitChange> find(String filePath) {
+    if (changesByPath.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(relativize(filePath)).map(changesByPath::get);
+  }
+
+  /**
+   * Whether the file has been changed.
+   *
+   * @param filePath the path of the file, absolute or relative to the repository root
+   * @return {@code true} if the change set has changes of the file
+   */
+  public boolean contains(String filePath) {
+    return find(filePath).isPresent();
+  }
+
+  /**
+   * Normalized repository relative paths of all changed files.
+   *
+   * @return the paths of changed files
+   */
+  public Set<String> paths() {
+    return changesByPath.keySet();
+  }
+
+  /**
+   * All changes in the order they were reported.
+   *
+   * @return the changes
+   */
+  public Collection<GitChange> changes() {
+    return changesByPath.values();
+  }
+
+  /**
+   * Number of changed files.
+   *
+   * @return the number of changed files
+   */
+  public int size() {
+    return changesByPath.size();
+  }
+
+  /**
+   * Whether no file has been changed.
+   *
+   * @return {@code true} if there are no changes
+   */
+  public boolean isEmpty() {
+    return changesByPath.isEmpty();
+  }
+
+  @Override
+  public Iterator<GitChange> iterator() {
+    return changes().iterator();
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper("ChangeSet")
+        .omitNullValues()
+        .add("repositoryRoot", repositoryRoot)
+        .add("paths", paths())
+        .toString();
+  }
+
+  /**
+   * Turns a file path to the key of the map. Checkstyle and git may disagree on symbolic links in
+   * the path, real paths are compared only when plain ones do not match.
+   */
+  @Nullable
+  private String relativize(String filePath) {
+    final Path path = Paths.get(filePath);
+    if (!path.isAbsolute()) {
+      return normalize(path.normalize().toString());
+    }
+    if (repositoryRoot == null) {
+      return null;
+    }
+    final Path normalized = path.normalize();
+    if (normalized.startsWith(repositoryRoot)) {
+      return normalize(repositoryRoot.relativize(normalized).toString());
+    }
+    try {
+      final Path realRoot = repositoryRoot.toRealPath();
+      final Path realPath = normalized.toRealPath();
+      return realPath.startsWith(realRoot)
+          ? normalize(realRoot.relativize(realPath).toString()) : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
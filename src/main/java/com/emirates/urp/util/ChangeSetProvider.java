@@ -0,0 +1,191 @@
+package com.emirates.urp.util;
+
+import com.google.common.base.Suppliers;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+/**
+ * Shares git change sets between all checks of the JVM.
+ * <p>
+ * Every git-aware check asks the provider instead of parsing the diff on its own. A change set is
+ * computed on the first request for a repository and pair of branches, concurrent requests for the
+ * same key wait for that single computation and later requests get the stored instance.
+ */
+@Slf4j
+public final class ChangeSetProvider {
+
+  private static final ChangeSetProvider INSTANCE = new ChangeSetProvider();
+
+  private final ConcurrentMap<Key, Supplier<ChangeSet>> changeSets = new ConcurrentHashMap<>();
+
+  /**
+   * The repository of the working directory and its current branch, looked up once.
+   */
+  private volatile Supplier<Optional<CurrentBranch>> currentBranch = newCurrentBranchSupplier();
+
+  private ChangeSetProvider() {
+  }
+
+  /**
+   * Returns the provider shared by all checks.
+   *
+   * @return the provider
+   */
+  public static ChangeSetProvider getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns changes of the current branch of the repository in the working directory since its
+   * merge-base with the main branch, or staged or work tree changes depending on
+   * {@link DiffOptions#getDiffSource()}.
+   *
+   * @param mainBranch the name of the main branch
+   * @param options    settings of the diff
+   * @return the change set, empty if committed changes of the main branch itself are requested or
+   *     git is not available
+   */
+  public ChangeSet getChangeSet(String mainBranch, DiffOptions options) {
+    final CurrentBranch current = currentBranch.get().orElse(null);
+    if (current == null) {
+      return ChangeSet.empty();
+    }
+    if (options.getDiffSource() == DiffSource.COMMITTED && current.branchName.equals(mainBranch)) {
+      log.warn("You try to run check on the same branches");
+      return ChangeSet.empty();
+    }
+    return getChangeSet(current.repositoryPath, current.branchName, mainBranch, options);
+  }
+
+  /**
+   * Returns changes of the branch since its merge-base with the main branch.
+   *
+   * @param repositoryPath the path of the repository
+   * @param branchName     the name of the branch with changes
+   * @param mainBranch     the name of the main branch
+   * @param options        settings of the diff
+   * @return the change set, empty if git changes couldn't be parsed
+   */
+  public ChangeSet getChangeSet(String repositoryPath, String branchName, String mainBranch,
+      DiffOptions options) {
+    final Key key = new Key(Paths.get(repositoryPath).toAbsolutePath().normalize().toString(),
+        branchName, mainBranch, options.toBuilder().cacheEnabled(true).parallelism(1).build());
+    return changeSets.computeIfAbsent(key, it -> Suppliers.memoize(() -> parse(it, options)))
+        .get();
+  }
+
+  /**
+   * Fetches the repository of the working directory according to the policy. Call it before the
+   * change set is requested: with {@link FetchPolicy#BACKGROUND} the fetch runs while checkstyle
+   * parses files, and the change set uses whatever the remote-tracking refs are when it is first
+   * requested.
+   *
+   * @param policy     when to fetch and whether to wait for it
+   * @param staleAfter the age of the last fetch after which {@link FetchPolicy#IF_STALE} fetches
+   */
+  public void fetch(FetchPolicy policy, Duration staleAfter) {
+    if (policy == FetchPolicy.NEVER) {
+      return;
+    }
+    try {
+      CheckCodeStyleUtils.fetchChanges(GitRepositories.current(), policy, staleAfter);
+    } catch (IllegalStateException e) {
+      log.error("Couldn't fetch changes, the working directory is not a git repository", e);
+    }
+  }
+
+  /**
+   * Forgets all computed change sets, the current branch and the changed files of
+   * {@link CheckCodeStyleUtils}, next requests parse git again.
+   */
+  public void invalidate() {
+    currentBranch = newCurrentBranchSupplier();
+    changeSets.clear();
+    CheckCodeStyleUtils.invalidate();
+  }
+
+  private static ChangeSet parse(Key key, DiffOptions options) {
+    log.debug("currentBranchName - '{}',  currentRepo - '{}, mainBranch - '{}'",
+        key.branchName, key.repositoryPath, key.mainBranch);
+    try {
+      return DiffParser.parse(key.repositoryPath, key.branchName, key.mainBranch, options);
+    } catch (IOException | GitAPIException e) {
+      log.error("Couldn't get git diff of '{}'", key.repositoryPath, e);
+      return ChangeSet.empty();
+    }
+  }
+
+  private static Supplier<Optional<CurrentBranch>> newCurrentBranchSupplier() {
+    return Suppliers.memoize(() -> {
+      try {
+        return Optional.of(new CurrentBranch(CheckCodeStyleUtils.getCurrentRepo(),
+            CheckCodeStyleUtils.findCurrentBranchName()));
+      } catch (IllegalStateException | UncheckedIOException e) {
+        log.error("Couldn't find the current git branch", e);
+        return Optional.empty();
+      }
+    });
+  }
+
+  /**
+   * The repository of the working directory and its checked out branch.
+   */
+  private static final class CurrentBranch {
+
+    private final String repositoryPath;
+    private final String branchName;
+
+    private CurrentBranch(String repositoryPath, String branchName) {
+      this.repositoryPath = repositoryPath;
+      this.branchName = branchName;
+    }
+  }
+
+  /**
+   * Identifies a change set. Options that don't change the result, the on-disk cache and the
+   * number of diff threads, are reset to their defaults, so checks that only differ in them share
+   * a single parse made with the options of the first request.
+   */
+  private static final class Key {
+
+    private final String repositoryPath;
+    private final String branchName;
+    private final String mainBranch;
+    private final DiffOptions options;
+
+    private Key(String repositoryPath, String branchName, String mainBranch,
+        DiffOptions options) {
+      this.repositoryPath = repositoryPath;
+      this.branchName = branchName;
+      this.mainBranch = mainBranch;
+      this.options = options;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+      if (this == another) {
+        return true;
+      }
+      if (!(another instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) another;
+      return repositoryPath.equals(key.repositoryPath) && branchName.equals(key.branchName)
+          && mainBranch.equals(key.mainBranch) && options.equals(key.options);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(repositoryPath, branchName, mainBranch, options);
+    }
+  }
+}
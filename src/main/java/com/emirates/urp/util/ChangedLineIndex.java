@@ -0,0 +1,385 @@
+package com.emirates.urp.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Compact immutable index of changed lines of a file.
+ * <p>
+ * Lines are stored as sorted, merged {@code [begin, end)} ranges packed into a single
+ * {@code int[]}, so a file with thousands of changed lines costs a couple of ints per hunk instead
+ * of a boxed {@link Integer} per line. Both {@link #contains(int)} and
+ * {@link #intersects(int, int)} are answered with a binary search over the ranges and do not
+ * allocate. The first line of a file is marked as line zero.
+ */
+public final class ChangedLineIndex {
+
+  private static final ChangedLineIndex EMPTY = new ChangedLineIndex(new int[0], 0);
+
+  /**
+   * Range bounds, the begin of the i-th range is stored at {@code 2 * i} and its (exclusive) end
+   * at {@code 2 * i + 1}. Ranges are sorted, do not overlap and do not touch each other.
+   */
+  private final int[] bounds;
+
+  /**
+   * Total number of lines covered by all ranges.
+   */
+  private final int lineCount;
+
+  private ChangedLineIndex(int[] bounds, int lineCount) {
+    this.bounds = bounds;
+    this.lineCount = lineCount;
+  }
+
+  /**
+   * Returns an index without any changed line.
+   *
+   * @return the empty index
+   */
+  public static ChangedLineIndex empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates an index from separate line numbers. Lines may come in any order and may repeat.
+   *
+   * @param lines the changed line numbers
+   * @return the index holding given lines
+   */
+  public static ChangedLineIndex of(int... lines) {
+    final Builder builder = builder();
+    for (int line : lines) {
+      builder.addLine(line);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates an index from packed range bounds, as returned by {@link #rangeBegin(int)} and
+   * {@link #rangeEnd(int)} of another index. Bounds are validated and normalized.
+   *
+   * @param bounds begin and end of every range one after another
+   * @return the index holding given ranges
+   */
+  public static ChangedLineIndex ofRanges(int... bounds) {
+    if (bounds.length % 2 != 0) {
+      throw new IllegalArgumentException("Range bounds must come in pairs");
+    }
+    final Builder builder = builder();
+    for (int i = 0; i < bounds.length; i += 2) {
+      builder.addRange(bounds[i], bounds[i + 1]);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a builder for {@link ChangedLineIndex}.
+   *
+   * @return a new builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Whether the index has no changed lines at all.
+   *
+   * @return {@code true} if there are no changed lines
+   */
+  public boolean isEmpty() {
+    return bounds.length == 0;
+  }
+
+  /**
+   * Number of merged ranges in the index.
+   *
+   * @return the number of ranges
+   */
+  public int rangeCount() {
+    return bounds.length / 2;
+  }
+
+  /**
+   * The first line of the given range.
+   *
+   * @param range index of the range, from zero to {@link #rangeCount()} exclusive
+   * @return the first line of the range
+   */
+  public int rangeBegin(int range) {
+    return bounds[2 * range];
+  }
+
+  /**
+   * The line following the last line of the given range.
+   *
+   * @param range index of the range, from zero to {@link #rangeCount()} exclusive
+   * @return the exclusive end of the range
+   */
+  public int rangeEnd(int range) {
+    return bounds[2 * range + 1];
+  }
+
+  /**
+   * Total number of changed lines.
+   *
+   * @return the number of changed lines
+   */
+  public int lineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Whether the given line is changed.
+   *
+   * @param line the line number
+   * @return {@code true} if the line is covered by one of the ranges
+   */
+  public boolean contains(int line) {
+    return intersects(line, line + 1);
+  }
+
+  /**
+   * Whether any line of {@code [from, to)} is changed.
+   *
+   * @param from the first line to test
+   * @param to   the line following the last line to test
+   * @return {@code true} if at least one line of the interval is covered by one of the ranges
+   */
+  public boolean intersects(int from, int to) {
+    if (from >= to) {
+      return false;
+    }
+    final int range = firstRangeEndingAfter(from);
+    return range < rangeCount() && rangeBegin(range) < to;
+  }
+
+  /**
+   * Binary search of the first range whose end is greater than the given line. Range ends are
+   * strictly increasing, because ranges are sorted and do not overlap.
+   */
+  private int firstRangeEndingAfter(int line) {
+    int low = 0;
+    int high = rangeCount();
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (rangeEnd(middle) <= line) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns a read-only view of the changed lines one by one in ascending order. The view does not
+   * copy the ranges, lines are boxed only when they are read.
+   *
+   * @return the list view of changed lines
+   */
+  public List<Integer> asList() {
+    return new LineListView();
+  }
+
+  @Override
+  public boolean equals(@Nullable Object another) {
+    if (this == another) {
+      return true;
+    }
+    return another instanceof ChangedLineIndex
+        && Arrays.equals(bounds, ((ChangedLineIndex) another).bounds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bounds);
+  }
+
+  /**
+   * Prints ranges in {@code [begin, end)} form.
+   *
+   * @return A string representation of the index
+   */
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder("[");
+    for (int range = 0; range < rangeCount(); range++) {
+      if (range > 0) {
+        builder.append(", ");
+      }
+      builder.append('[').append(rangeBegin(range)).append(", ").append(rangeEnd(range))
+          .append(')');
+    }
+    return builder.append(']').toString();
+  }
+
+  /**
+   * List of lines backed by the ranges of the enclosing index.
+   */
+  private final class LineListView extends AbstractList<Integer> implements RandomAccess {
+
+    /**
+     * Number of lines in all ranges before the i-th one, computed on the first access by index.
+     */
+    private int[] offsets;
+
+    @Override
+    public Integer get(int index) {
+      if (index < 0 || index >= lineCount) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      if (offsets == null) {
+        offsets = new int[rangeCount()];
+        for (int range = 1; range < offsets.length; range++) {
+          offsets[range] = offsets[range - 1] + rangeEnd(range - 1) - rangeBegin(range - 1);
+        }
+      }
+      int range = Arrays.binarySearch(offsets, index);
+      if (range < 0) {
+        range = -range - 2;
+      }
+      return rangeBegin(range) + index - offsets[range];
+    }
+
+    @Override
+    public boolean contains(Object element) {
+      return element instanceof Integer && ChangedLineIndex.this.contains((Integer) element);
+    }
+
+    @Override
+    public int size() {
+      return lineCount;
+    }
+  }
+
+  /**
+   * Builds instances of {@link ChangedLineIndex}. Ranges may be added in any order, overlapping and
+   * adjacent ranges are merged on {@link #build()}. Adding ranges in ascending order, as JGit
+   * reports edits, never needs sorting.
+   */
+  @NotThreadSafe
+  public static final class Builder {
+
+    private int[] bounds = new int[8];
+    private int size;
+    private boolean sorted = true;
+
+    private Builder() {
+    }
+
+    /**
+     * Adds the single line.
+     *
+     * @param line the changed line
+     * @return {@code this} builder for use in a chained invocation
+     */
+    public Builder addLine(int line) {
+      return addRange(line, line + 1);
+    }
+
+    /**
+     * Adds lines of {@code [begin, end)}. Empty ranges are ignored.
+     *
+     * @param begin the first changed line
+     * @param end   the line following the last changed line
+     * @return {@code this} builder for use in a chained invocation
+     */
+    public Builder addRange(int begin, int end) {
+      if (begin < 0) {
+        throw new IllegalArgumentException("Line number can not be negative: " + begin);
+      }
+      if (begin >= end) {
+        return this;
+      }
+      if (size > 0) {
+        final int lastBegin = bounds[size - 2];
+        final int lastEnd = bounds[size - 1];
+        if (begin >= lastBegin && begin <= lastEnd) {
+          bounds[size - 1] = Math.max(lastEnd, end);
+          return this;
+        }
+        sorted &= begin > lastEnd;
+      }
+      if (size == bounds.length) {
+        bounds = Arrays.copyOf(bounds, size * 2);
+      }
+      bounds[size++] = begin;
+      bounds[size++] = end;
+      return this;
+    }
+
+    /**
+     * Adds all ranges of another index.
+     *
+     * @param index the index to copy ranges from
+     * @return {@code this} builder for use in a chained invocation
+     */
+    public Builder addAll(ChangedLineIndex index) {
+      for (int range = 0; range < index.rangeCount(); range++) {
+        addRange(index.rangeBegin(range), index.rangeEnd(range));
+      }
+      return this;
+    }
+
+    /**
+     * Adds all given lines.
+     *
+     * @param lines the changed lines
+     * @return {@code this} builder for use in a chained invocation
+     */
+    public Builder addAll(Iterable<Integer> lines) {
+      for (int line : lines) {
+        addLine(line);
+      }
+      return this;
+    }
+
+    /**
+     * Builds a new {@link ChangedLineIndex}.
+     *
+     * @return an immutable index
+     */
+    public ChangedLineIndex build() {
+      if (size == 0) {
+        return EMPTY;
+      }
+      if (!sorted) {
+        sortAndMerge();
+      }
+      int lineCount = 0;
+      for (int i = 0; i < size; i += 2) {
+        lineCount += bounds[i + 1] - bounds[i];
+      }
+      return new ChangedLineIndex(Arrays.copyOf(bounds, size), lineCount);
+    }
+
+    /**
+     * Orders ranges by their begin and merges overlapping and adjacent ones. Both bounds are packed
+     * into a single {@code long} to sort pairs with a primitive sort.
+     */
+    private void sortAndMerge() {
+      final long[] packed = new long[size / 2];
+      for (int i = 0; i < packed.length; i++) {
+        packed[i] = (long) bounds[2 * i] << Integer.SIZE | bounds[2 * i + 1];
+      }
+      Arrays.sort(packed);
+      size = 0;
+      for (long range : packed) {
+        final int begin = (int) (range >>> Integer.SIZE);
+        final int end = (int) range;
+        if (size > 0 && begin <= bounds[size - 1]) {
+          bounds[size - 1] = Math.max(bounds[size - 1], end);
+        } else {
+          bounds[size++] = begin;
+          bounds[size++] = end;
+        }
+      }
+      sorted = true;
+    }
+  }
+}
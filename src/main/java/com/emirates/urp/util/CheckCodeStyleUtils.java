@@ -5,145 +5,273 @@ import static com.emirates.urp.util.CheckCodeStyleUtils.CodeStyleGitCommand.DIFF
 import static java.lang.String.format;
 import static org.apache.commons.lang3.SystemProperties.USER_DIR;
 
+import com.emirates.urp.metrics.GitPhase;
+import com.emirates.urp.metrics.Metrics;
+import com.google.common.base.Suppliers;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
+/**
+ * Git helpers of the checks.
+ * <p>
+ * Changed files are read once per repository, main branch and set of file extensions into an
+ * immutable snapshot. Concurrent callers wait for that single computation, later callers get the
+ * stored snapshot without locking. Snapshots are kept until {@link ChangeSetProvider#invalidate()}
+ * drops them together with the change sets.
+ */
 @Slf4j
 public final class CheckCodeStyleUtils {
 
-  private static String branchName;
-  private static boolean isAlreadyFetched;
-  private static final List<String> DIFF_WITH_MASTER_LIST = new ArrayList<>();
-  public static final Path PROJECT_ROOT = Path.of(USER_DIR);
-  private static final AtomicReference<List<String>> changedFileSet = new AtomicReference<>(null);
+  private static final int FETCH_TIMEOUT_SECONDS = 60;
+  private static final String DEFAULT_MAIN_BRANCH = "main";
+  private static final ConcurrentMap<File, CompletableFuture<Void>> FETCHES =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentMap<DiffKey, Supplier<List<String>>> DIFFS =
+      new ConcurrentHashMap<>();
+  private static final ConcurrentMap<SnapshotKey, Supplier<List<String>>> SNAPSHOTS =
+      new ConcurrentHashMap<>();
+  public static final Path PROJECT_ROOT = Path.of(System.getProperty(USER_DIR));
 
+  private CheckCodeStyleUtils() {
+  }
+
+  /**
+   * Returns names of files changed in the repository of the working directory, locally or since
+   * the merge-base with {@code origin/main}.
+   *
+   * @param fileExtensions extensions of files to return, all files if empty
+   * @return the immutable list of file names
+   */
   public static List<String> getChangedFileList(String... fileExtensions) {
-    List<String> currentList = changedFileSet.get();
-    if (currentList == null) {
-      List<String> initializedList = initializeChangedFileSet(fileExtensions);
-      if (changedFileSet.compareAndSet(null, initializedList)) {
-        return initializedList;
-      } else {
-        return changedFileSet.get();
-      }
-    }
-    return currentList;
+    return getChangedFileList(GitRepositories.current(), DEFAULT_MAIN_BRANCH, fileExtensions);
   }
 
-  private static List<String> initializeChangedFileSet(String... fileExtensions) {
-    CheckCodeStyleUtils.fetchChanges();
-    List<String> changedFileNameList = CheckCodeStyleUtils.runGitDiffCommandAndGetChanges(
-        DIFF_NAMES_LOCAL, DIFF_NAMES_MASTER);
-    return CheckCodeStyleUtils.getChangedFileList(changedFileNameList).stream()
-        .filter(it -> CommonUtil.matchesFileExtension(it, fileExtensions)).map(File::getName)
-        .toList();
+  /**
+   * Returns names of files changed in the repository, locally or since the merge-base with the
+   * remote-tracking branch of the main branch. The repository is fetched before the first diff.
+   *
+   * @param repository     the repository
+   * @param mainBranch     the name of the main branch on {@code origin}
+   * @param fileExtensions extensions of files to return, all files if empty
+   * @return the immutable list of file names, sorted by path
+   */
+  public static List<String> getChangedFileList(Repository repository, String mainBranch,
+      String... fileExtensions) {
+    final SnapshotKey key = new SnapshotKey(repository, mainBranch,
+        fileExtensions == null ? Set.of() : Set.copyOf(Arrays.asList(fileExtensions)));
+    return memoized(SNAPSHOTS, key, CheckCodeStyleUtils::createSnapshot);
   }
 
+  /**
+   * Returns repository relative paths of files changed in the repository of the working
+   * directory, computed once per pair of commands.
+   *
+   * @param localDiffCommand  the source of local changes
+   * @param remoteDiffCommand the source of changes since the main branch
+   * @return the immutable list of paths, sorted
+   */
   public static List<String> runGitDiffCommandAndGetChanges(CodeStyleGitCommand localDiffCommand,
       CodeStyleGitCommand remoteDiffCommand) {
+    return runGitDiffCommandAndGetChanges(GitRepositories.current(), DEFAULT_MAIN_BRANCH,
+        localDiffCommand, remoteDiffCommand);
+  }
 
-    log.info(localDiffCommand + " localDiffCommand");
-    log.info(remoteDiffCommand + " remoteDiffCommand");
-
-    if (DIFF_WITH_MASTER_LIST.isEmpty()) {
-      log.info(
-          format("Getting diff between `origin/master` and `%s` branches", getCurrentBranchName()));
-      DIFF_WITH_MASTER_LIST.addAll(
-          executeCommandAndGetResultList(new ProcessBuilder(localDiffCommand.getCommands())));
+  private static List<String> runGitDiffCommandAndGetChanges(Repository repository,
+      String mainBranch, CodeStyleGitCommand localDiffCommand,
+      CodeStyleGitCommand remoteDiffCommand) {
+    final DiffKey key = new DiffKey(repository, mainBranch, localDiffCommand, remoteDiffCommand);
+    return memoized(DIFFS, key, CheckCodeStyleUtils::diff);
+  }
 
-      DIFF_WITH_MASTER_LIST.addAll(
-          executeCommandAndGetResultList(new ProcessBuilder(remoteDiffCommand.getCommands())));
-    }
-    return DIFF_WITH_MASTER_LIST;
+  /**
+   * Forgets all computed diffs and snapshots, next requests read git again.
+   */
+  static void invalidate() {
+    DIFFS.clear();
+    SNAPSHOTS.clear();
   }
 
-  private static List<String> executeCommandAndGetResultList(ProcessBuilder processBuilder) {
-    Process process;
-    StringWriter writer = new StringWriter();
-    try {
-      process = processBuilder.start();
-      process.waitFor(20, TimeUnit.SECONDS);
-      IOUtils.copy(process.getInputStream(), writer, StandardCharsets.UTF_8);
-    } catch (IOException | InterruptedException e) {
-      throw new Error(
-          String.format("Can not execute command [%s], trace: %s", processBuilder.command(), e));
+  /**
+   * Returns the value of the key, computing it on the first request. The value of a computed key
+   * is read without locking.
+   */
+  private static <K, V> V memoized(ConcurrentMap<K, Supplier<V>> values, K key,
+      Function<K, V> compute) {
+    Supplier<V> value = values.get(key);
+    if (value == null) {
+      value = values.computeIfAbsent(key, it -> Suppliers.memoize(() -> compute.apply(it)));
     }
-    return writer.toString().isEmpty() ? List.of() : Arrays.asList(writer.toString().split("\n"));
+    return value.get();
   }
 
-  private static synchronized Set<File> getChangedFileList(List<String> fileNameList) {
-    log.info("getChangedFileSet " + fileNameList.size());
-
-    fileNameList.forEach(log::info);
-
-    Set<File> fileSet;
-    CopyOnWriteArrayList<String> cowList = new CopyOnWriteArrayList<>(fileNameList);
+  private static List<String> diff(DiffKey key) {
+    log.info("Getting diff between `origin/{}` and `{}` branches, commands {} and {}",
+        key.mainBranch, findCurrentBranchName(key.repository), key.localDiffCommand,
+        key.remoteDiffCommand);
+    final long start = Metrics.start();
+    final Set<String> paths = new TreeSet<>();
+    paths.addAll(key.localDiffCommand.changedPaths(key.repository, key.mainBranch));
+    paths.addAll(key.remoteDiffCommand.changedPaths(key.repository, key.mainBranch));
+    Metrics.recordGit(start, GitPhase.CHANGED_FILES);
+    return List.copyOf(paths);
+  }
 
-    fileSet = cowList.stream()
+  private static List<String> createSnapshot(SnapshotKey key) {
+    fetchChanges(key.repository, FetchPolicy.ALWAYS, Duration.ZERO);
+    final List<String> paths = runGitDiffCommandAndGetChanges(key.repository, key.mainBranch,
+        DIFF_NAMES_LOCAL, DIFF_NAMES_MASTER);
+    final String[] fileExtensions = key.fileExtensions.toArray(String[]::new);
+    final List<File> files = paths.stream()
         .filter(StringUtils::isNotEmpty)
-        //.map(path -> PROJECT_ROOT + "/" + path)
-        .map(File::new)
+        .map(path -> new File(key.repository.getWorkTree(), path))
         .filter(File::exists)
-        .collect(Collectors.toSet());
-
-    log.info("\nList of " + fileSet.size() + " files for checking is:\n "
-        + fileSet.stream().map(
-            file -> "\t" + StringUtils.remove(file.getAbsolutePath(), PROJECT_ROOT.toString()) + "\n")
-        .collect(Collectors.joining()));
-    return fileSet;
+        .filter(file -> CommonUtil.matchesFileExtension(file, fileExtensions))
+        .toList();
+    log.info("List of {} files for checking is:\n{}", files.size(), files.stream()
+        .map(file -> "\t" + StringUtils.remove(file.getAbsolutePath(), PROJECT_ROOT.toString()))
+        .collect(Collectors.joining("\n")));
+    return files.stream().map(File::getName).toList();
   }
 
   public static void fetchChanges() {
-    if (!isAlreadyFetched) {
+    fetchChanges(GitRepositories.current(), FetchPolicy.ALWAYS, Duration.ZERO);
+  }
+
+  /**
+   * Fetches changes of the remote repository according to the policy. Calls made while a fetch of
+   * the repository is running share it instead of starting another one, later calls evaluate the
+   * policy again.
+   *
+   * @param repository the repository to fetch into
+   * @param policy     when to fetch and whether to wait for it
+   * @param staleAfter the age of {@code FETCH_HEAD} after which {@link FetchPolicy#IF_STALE}
+   *                   fetches again
+   * @return the future completed when the fetch is over, it is already completed unless the
+   *     policy is {@link FetchPolicy#BACKGROUND}. The future never completes exceptionally, a
+   *     failed fetch is logged and the local refs are used.
+   */
+  public static CompletableFuture<Void> fetchChanges(Repository repository, FetchPolicy policy,
+      Duration staleAfter) {
+    if (policy == FetchPolicy.NEVER
+        || policy == FetchPolicy.IF_STALE && !isFetchStale(repository, staleAfter)) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    final File gitDirectory = repository.getDirectory().getAbsoluteFile();
+    final CompletableFuture<Void> fetch = new CompletableFuture<>();
+    final CompletableFuture<Void> started = FETCHES.putIfAbsent(gitDirectory, fetch);
+    if (started != null) {
+      if (policy != FetchPolicy.BACKGROUND) {
+        started.join();
+      }
+      return started;
+    }
+
+    final Runnable task = () -> {
       try {
-        log.info("Fetching changes...");
-        new ProcessBuilder("git", "fetch")
-            .start()
-            .waitFor(60, TimeUnit.SECONDS);
-        isAlreadyFetched = true;
-      } catch (InterruptedException | IOException e) {
-        throw new Error("Error occurred while fetching changes from Git. "
-            + "Please configure your local Git client and run the checks again.\n", e);
+        fetch(repository);
+      } finally {
+        FETCHES.remove(gitDirectory, fetch);
+        fetch.complete(null);
       }
+    };
+    if (policy == FetchPolicy.BACKGROUND) {
+      final Thread thread = new Thread(task, "urp-checkstyle-git-fetch");
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      task.run();
+    }
+    return fetch;
+  }
+
+  private static void fetch(Repository repository) {
+    log.info("Fetching changes...");
+    final long start = Metrics.start();
+    try (Git git = Git.wrap(repository)) {
+      git.fetch().setTimeout(FETCH_TIMEOUT_SECONDS).call();
+    } catch (GitAPIException | RuntimeException e) {
+      log.warn("Couldn't fetch changes from the remote repository, local refs are used. "
+          + "Please configure your local Git client and run the checks again.", e);
+    } finally {
+      Metrics.recordGit(start, GitPhase.FETCH);
     }
   }
 
+  /**
+   * Whether the last fetch is older than the given age, judging by the modification time of
+   * {@code FETCH_HEAD}.
+   */
+  private static boolean isFetchStale(Repository repository, Duration staleAfter) {
+    final File fetchHead = new File(repository.getDirectory(), "FETCH_HEAD");
+    return !fetchHead.exists() || Instant.ofEpochMilli(fetchHead.lastModified())
+        .plus(staleAfter).isBefore(Instant.now());
+  }
+
+  /**
+   * Returns the root of the work tree of the current repository, the same as
+   * {@code git rev-parse --show-toplevel} followed by a slash.
+   *
+   * @return the absolute path of the work tree ending with a slash
+   */
   public static String getCurrentRepo() {
-    String currentRepo = executeCommandAndGetResultList(
-        new ProcessBuilder("git", "rev-parse", "--show-toplevel")).get(0).trim();
-    //new ProcessBuilder("git", "remote", "get-url", "origin")).get(0).trim();
-    return currentRepo + "/";
+    return GitRepositories.current().getWorkTree().getAbsolutePath() + "/";
   }
 
+  /**
+   * Returns the short name of the checked out branch, the same as
+   * {@code git rev-parse --abbrev-ref HEAD}: {@code HEAD} if no branch is checked out.
+   *
+   * @return the name of the current branch
+   */
   public static String findCurrentBranchName() {
-    return executeCommandAndGetResultList(
-        new ProcessBuilder("git", "rev-parse", "--abbrev-ref", "HEAD")).get(0).trim();
+    return findCurrentBranchName(GitRepositories.current());
   }
 
-  private static String getCurrentBranchName() {
-    if (branchName == null) {
-      log.info("getting branch name...");
-      branchName = findCurrentBranchName();
-      log.info(branchName);
+  private static String findCurrentBranchName(Repository repository) {
+    try {
+      final Ref head = repository.exactRef(Constants.HEAD);
+      if (head == null || !head.isSymbolic()) {
+        return Constants.HEAD;
+      }
+      return Repository.shortenRefName(head.getTarget().getName());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can not read the current branch from Git", e);
     }
-    return branchName;
   }
 
   @SuppressWarnings("Duplicates")
@@ -169,13 +297,138 @@ public final class CheckCodeStyleUtils {
     return fileInList;
   }
 
+  /**
+   * Identifies changed paths of a repository read with a pair of commands.
+   */
+  private static final class DiffKey {
+
+    private final Repository repository;
+    private final String mainBranch;
+    private final CodeStyleGitCommand localDiffCommand;
+    private final CodeStyleGitCommand remoteDiffCommand;
+
+    private DiffKey(Repository repository, String mainBranch,
+        CodeStyleGitCommand localDiffCommand, CodeStyleGitCommand remoteDiffCommand) {
+      this.repository = repository;
+      this.mainBranch = mainBranch;
+      this.localDiffCommand = localDiffCommand;
+      this.remoteDiffCommand = remoteDiffCommand;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+      if (this == another) {
+        return true;
+      }
+      if (!(another instanceof DiffKey)) {
+        return false;
+      }
+      final DiffKey key = (DiffKey) another;
+      return repository.getDirectory().equals(key.repository.getDirectory())
+          && mainBranch.equals(key.mainBranch)
+          && localDiffCommand == key.localDiffCommand
+          && remoteDiffCommand == key.remoteDiffCommand;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(repository.getDirectory(), mainBranch, localDiffCommand,
+          remoteDiffCommand);
+    }
+  }
+
+  /**
+   * Identifies a snapshot of changed files.
+   */
+  private static final class SnapshotKey {
+
+    private final Repository repository;
+    private final String mainBranch;
+    private final Set<String> fileExtensions;
+
+    private SnapshotKey(Repository repository, String mainBranch, Set<String> fileExtensions) {
+      this.repository = repository;
+      this.mainBranch = mainBranch;
+      this.fileExtensions = fileExtensions;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+      if (this == another) {
+        return true;
+      }
+      if (!(another instanceof SnapshotKey)) {
+        return false;
+      }
+      final SnapshotKey key = (SnapshotKey) another;
+      return repository.getDirectory().equals(key.repository.getDirectory())
+          && mainBranch.equals(key.mainBranch)
+          && fileExtensions.equals(key.fileExtensions);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(repository.getDirectory(), mainBranch, fileExtensions);
+    }
+  }
+
+  /**
+   * Sources of changed file names. The commands are not executed, they describe the git command
+   * each source is equivalent to; changes are read with JGit from the shared repository.
+   */
   public enum CodeStyleGitCommand {
-    DIFF_NAMES_LOCAL(List.of("git", "diff", "--name-only", "HEAD")),
+    DIFF_NAMES_LOCAL(List.of("git", "diff", "--name-only", "HEAD")) {
+      @Override
+      List<String> changedPaths(Repository repository, String mainBranch) {
+        try {
+          final IndexDiff indexDiff = new IndexDiff(repository, Constants.HEAD,
+              new FileTreeIterator(repository));
+          indexDiff.diff();
+          final Set<String> paths = new TreeSet<>();
+          paths.addAll(indexDiff.getAdded());
+          paths.addAll(indexDiff.getChanged());
+          paths.addAll(indexDiff.getRemoved());
+          paths.addAll(indexDiff.getMissing());
+          paths.addAll(indexDiff.getModified());
+          paths.addAll(indexDiff.getConflicting());
+          return List.copyOf(paths);
+        } catch (IOException e) {
+          throw new Error(String.format("Can not read changes %s", this), e);
+        }
+      }
+    },
 
     //This could be different depend on company
-    DIFF_NAMES_MASTER(List.of("git", "diff", "--name-only", "origin/main..."));
+    DIFF_NAMES_MASTER(List.of("git", "diff", "--name-only", "origin/main...")) {
+      @Override
+      List<String> changedPaths(Repository repository, String mainBranch) {
+        try (RevWalk walk = new RevWalk(repository);
+            DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+          final ObjectId head = repository.resolve(Constants.HEAD);
+          final ObjectId main = repository.resolve(Constants.R_REMOTES + "origin/" + mainBranch);
+          if (head == null || main == null) {
+            log.warn("Can not resolve HEAD or origin/{}, skipping {}", mainBranch, this);
+            return List.of();
+          }
+          walk.setRevFilter(RevFilter.MERGE_BASE);
+          walk.markStart(walk.parseCommit(head));
+          walk.markStart(walk.parseCommit(main));
+          final RevCommit mergeBase = walk.next();
+          if (mergeBase == null) {
+            return List.of();
+          }
+          formatter.setRepository(repository);
+          return formatter.scan(mergeBase.getTree(), walk.parseCommit(head).getTree()).stream()
+              .map(entry -> entry.getChangeType() == DiffEntry.ChangeType.DELETE
+                  ? entry.getOldPath() : entry.getNewPath())
+              .toList();
+        } catch (IOException e) {
+          throw new Error(String.format("Can not read changes %s", this), e);
+        }
+      }
+    };
 
-    private List<String> commands;
+    private final List<String> commands;
 
     CodeStyleGitCommand(List<String> commands) {
       this.commands = commands;
@@ -185,9 +438,18 @@ public final class CheckCodeStyleUtils {
       return commands;
     }
 
+    /**
+     * Reads repository relative paths of changed files.
+     *
+     * @param repository the repository to read changes from
+     * @param mainBranch the name of the main branch on {@code origin}
+     * @return paths of changed files
+     */
+    abstract List<String> changedPaths(Repository repository, String mainBranch);
+
     @Override
     public String toString() {
       return commands.toString();
     }
   }
-}
\ No newline at end of file
+}
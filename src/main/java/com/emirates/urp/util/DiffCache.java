@@ -0,0 +1,221 @@
+package com.emirates.urp.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * On-disk cache of the last parsed {@link ChangeSet}, stored in the git directory of the
+ * repository.
+ * <p>
+ * The change set is a pure function of the compared commits, so it is keyed by the ids of both
+ * commits plus the description of what is compared. Later runs on the same commits load the
+ * memory-mapped file instead of walking history and diffing trees.
+ * <p>
+ * File layout, all numbers are big-endian:
+ * <pre>
+ * int magic, int version
+ * byte[20] new commit id, byte[20] old commit id, string source
+ * int number of changes
+ *   string path
+ *   int n, int[2 * n] added ranges
+ *   int n, int[2 * n] deleted ranges
+ * </pre>
+ * where {@code string} is an int length followed by UTF-8 bytes.
+ */
+@Slf4j
+final class DiffCache {
+
+  /**
+   * The directory inside the git directory that holds files of these checks.
+   */
+  static final String DIRECTORY = "urp-checkstyle";
+
+  private static final String FILE_NAME = "diff.cache";
+
+  private static final int MAGIC = 0x55525044;
+
+  private static final int VERSION = 1;
+
+  private final Path file;
+
+  /**
+   * Creates the cache stored in the given git directory.
+   *
+   * @param gitDir the {@code .git} directory of the repository
+   */
+  DiffCache(Path gitDir) {
+    this.file = gitDir.resolve(DIRECTORY).resolve(FILE_NAME);
+  }
+
+  /**
+   * Loads the change set stored for the key.
+   *
+   * @param key      the key of the requested diff
+   * @param workTree the root of the work tree the change set belongs to
+   * @return the stored change set, empty if there is no cache or it was built for another key
+   */
+  Optional<ChangeSet> load(Key key, Path workTree) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !key.equals(readKey(buffer))) {
+        return Optional.empty();
+      }
+      final int count = buffer.getInt();
+      final List<GitChange> changes = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        changes.add(ImmutableGitChange.builder()
+            .path(readString(buffer))
+            .addedLineIndex(readIndex(buffer))
+            .deletedLineIndex(readIndex(buffer))
+            .build());
+      }
+      log.debug("Loaded {} changes from '{}'", count, file);
+      return Optional.of(ChangeSet.of(workTree, changes));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      log.debug("Ignoring unreadable diff cache '{}'", file, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Replaces the cache with the change set of the key. The file is written next to the cache and
+   * moved over it, so a concurrent reader never sees a partially written file.
+   *
+   * @param key       the key of the diff
+   * @param changeSet the parsed changes
+   */
+  void store(Key key, ChangeSet changeSet) {
+    try {
+      Files.createDirectories(file.getParent());
+      final Path temporary = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+      try {
+        try (DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+          output.writeInt(MAGIC);
+          output.writeInt(VERSION);
+          writeKey(output, key);
+          output.writeInt(changeSet.size());
+          for (GitChange change : changeSet) {
+            writeString(output, change.path());
+            writeIndex(output, change.addedLineIndex());
+            writeIndex(output, change.deletedLineIndex());
+          }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      log.debug("Couldn't write diff cache '{}'", file, e);
+    }
+  }
+
+  private static Key readKey(ByteBuffer buffer) {
+    final byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+    buffer.get(id);
+    final ObjectId newCommit = ObjectId.fromRaw(id);
+    buffer.get(id);
+    final ObjectId oldCommit = ObjectId.fromRaw(id);
+    return new Key(newCommit, oldCommit, readString(buffer));
+  }
+
+  private static void writeKey(DataOutputStream output, Key key) throws IOException {
+    final byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+    key.newCommit.copyRawTo(id, 0);
+    output.write(id);
+    key.oldCommit.copyRawTo(id, 0);
+    output.write(id);
+    writeString(output, key.source);
+  }
+
+  private static ChangedLineIndex readIndex(ByteBuffer buffer) {
+    final int[] bounds = new int[2 * buffer.getInt()];
+    buffer.asIntBuffer().get(bounds);
+    buffer.position(buffer.position() + bounds.length * Integer.BYTES);
+    return ChangedLineIndex.ofRanges(bounds);
+  }
+
+  private static void writeIndex(DataOutputStream output, ChangedLineIndex index)
+      throws IOException {
+    output.writeInt(index.rangeCount());
+    for (int range = 0; range < index.rangeCount(); range++) {
+      output.writeInt(index.rangeBegin(range));
+      output.writeInt(index.rangeEnd(range));
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * Identifies a diff: the commit with changes, the commit it is compared with and the description
+   * of the compared sources.
+   */
+  static final class Key {
+
+    private final ObjectId newCommit;
+    private final ObjectId oldCommit;
+    private final String source;
+
+    Key(AnyObjectId newCommit, AnyObjectId oldCommit, String source) {
+      this.newCommit = newCommit.copy();
+      this.oldCommit = oldCommit.copy();
+      this.source = source;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+      if (this == another) {
+        return true;
+      }
+      if (!(another instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) another;
+      return newCommit.equals(key.newCommit) && oldCommit.equals(key.oldCommit)
+          && source.equals(key.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(newCommit, oldCommit, source);
+    }
+
+    @Override
+    public String toString() {
+      return source + ":" + newCommit.name() + ".." + oldCommit.name();
+    }
+  }
+}
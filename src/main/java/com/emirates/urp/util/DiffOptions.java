@@ -0,0 +1,336 @@
+package com.emirates.urp.util;
+
+import com.google.common.base.MoreObjects;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Immutable settings of {@link DiffParser}.
+ * <p>
+ * Use the builder to create instances: {@code DiffOptions.builder()}, or {@link #defaults()}.
+ */
+public final class DiffOptions {
+
+  /**
+   * The default minimum similarity of a renamed file, in percent.
+   */
+  public static final int DEFAULT_RENAME_SCORE = 60;
+
+  /**
+   * The default maximum number of files for which renames are searched by content.
+   */
+  public static final int DEFAULT_RENAME_LIMIT = 400;
+
+  private static final DiffOptions DEFAULTS = builder().build();
+
+  private final boolean cacheEnabled;
+
+  private final int parallelism;
+
+  private final boolean renameDetectionEnabled;
+
+  private final int renameScore;
+
+  private final int renameLimit;
+
+  private final DiffSource diffSource;
+
+  private final int mergeBaseDepth;
+
+  private DiffOptions(Builder builder) {
+    this.cacheEnabled = builder.cacheEnabled;
+    this.parallelism = builder.parallelism;
+    this.renameDetectionEnabled = builder.renameDetectionEnabled;
+    this.renameScore = builder.renameScore;
+    this.renameLimit = builder.renameLimit;
+    this.diffSource = builder.diffSource;
+    this.mergeBaseDepth = builder.mergeBaseDepth;
+  }
+
+  /**
+   * Returns the default settings.
+   *
+   * @return default settings
+   */
+  public static DiffOptions defaults() {
+    return DEFAULTS;
+  }
+
+  /**
+   * Creates a builder for {@link DiffOptions}.
+   *
+   * @return A new builder with default values
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Whether parsed changes are stored in and loaded from the cache in the git directory. Enabled by
+   * default.
+   *
+   * @return {@code true} if the on-disk cache is used
+   */
+  public boolean isCacheEnabled() {
+    return cacheEnabled;
+  }
+
+  /**
+   * The number of threads that diff lines of changed files. With {@code 1}, the default, files are
+   * diffed one after another on the calling thread.
+   *
+   * @return the number of diff threads, at least {@code 1}
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Whether moved and copied files are detected. A detected file is diffed against its source, so
+   * only lines changed after the move are reported instead of the whole file. Enabled by default.
+   *
+   * @return {@code true} if renames and copies are detected
+   */
+  public boolean isRenameDetectionEnabled() {
+    return renameDetectionEnabled;
+  }
+
+  /**
+   * The minimum similarity, in percent, of an added file to a removed one to be a rename or a copy
+   * of it. {@value #DEFAULT_RENAME_SCORE} by default, the same as git.
+   *
+   * @return the similarity threshold from {@code 0} to {@code 100}
+   */
+  public int getRenameScore() {
+    return renameScore;
+  }
+
+  /**
+   * The maximum number of added or removed files for which similar content is searched. The
+   * search compares every pair of them, larger diffs only detect renames of identical files.
+   * {@value #DEFAULT_RENAME_LIMIT} by default.
+   *
+   * @return the limit of files, {@code 0} for no limit
+   */
+  public int getRenameLimit() {
+    return renameLimit;
+  }
+
+  /**
+   * What is compared: committed changes of the branch, the staged index or the work tree.
+   * {@link DiffSource#COMMITTED} by default. Only committed changes are cached on disk.
+   *
+   * @return the compared sources
+   */
+  public DiffSource getDiffSource() {
+    return diffSource;
+  }
+
+  /**
+   * The maximum number of commits walked to find the merge-base of the branch with the main
+   * branch. When the limit is reached the branch is compared with the head of the main branch
+   * instead, and a warning is logged. {@code 0}, the default, walks as far as needed.
+   *
+   * @return the limit of walked commits, {@code 0} for no limit
+   */
+  public int getMergeBaseDepth() {
+    return mergeBaseDepth;
+  }
+
+  /**
+   * Creates a builder filled with values of this instance.
+   *
+   * @return A new builder
+   */
+  public Builder toBuilder() {
+    return new Builder().from(this);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object another) {
+    if (this == another) {
+      return true;
+    }
+    if (!(another instanceof DiffOptions)) {
+      return false;
+    }
+    final DiffOptions options = (DiffOptions) another;
+    return cacheEnabled == options.cacheEnabled && parallelism == options.parallelism
+        && renameDetectionEnabled == options.renameDetectionEnabled
+        && renameScore == options.renameScore && renameLimit == options.renameLimit
+        && diffSource == options.diffSource && mergeBaseDepth == options.mergeBaseDepth;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(cacheEnabled, parallelism, renameDetectionEnabled, renameScore,
+        renameLimit, diffSource, mergeBaseDepth);
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper("DiffOptions")
+        .add("cacheEnabled", cacheEnabled)
+        .add("parallelism", parallelism)
+        .add("renameDetectionEnabled", renameDetectionEnabled)
+        .add("renameScore", renameScore)
+        .add("renameLimit", renameLimit)
+        .add("diffSource", diffSource)
+        .add("mergeBaseDepth", mergeBaseDepth)
+        .toString();
+  }
+
+  /**
+   * Builds instances of {@link DiffOptions}.
+   */
+  @NotThreadSafe
+  public static final class Builder {
+
+    private boolean cacheEnabled = true;
+
+    private int parallelism = 1;
+
+    private boolean renameDetectionEnabled = true;
+
+    private int renameScore = DEFAULT_RENAME_SCORE;
+
+    private int renameLimit = DEFAULT_RENAME_LIMIT;
+
+    private DiffSource diffSource = DiffSource.COMMITTED;
+
+    private int mergeBaseDepth;
+
+    private Builder() {
+    }
+
+    /**
+     * Fills the builder with values of the given instance.
+     *
+     * @param instance The instance to copy values from
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public Builder from(DiffOptions instance) {
+      this.cacheEnabled = instance.cacheEnabled;
+      this.parallelism = instance.parallelism;
+      this.renameDetectionEnabled = instance.renameDetectionEnabled;
+      this.renameScore = instance.renameScore;
+      this.renameLimit = instance.renameLimit;
+      this.diffSource = instance.diffSource;
+      this.mergeBaseDepth = instance.mergeBaseDepth;
+      return this;
+    }
+
+    /**
+     * Sets whether the on-disk cache of parsed changes is used.
+     *
+     * @param cacheEnabled the new value
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public Builder cacheEnabled(boolean cacheEnabled) {
+      this.cacheEnabled = cacheEnabled;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads that diff lines of changed files.
+     *
+     * @param parallelism the new value, at least {@code 1}
+     * @return {@code this} builder for use in a chained invocation
+     * @throws IllegalArgumentException if the value is less than {@code 1}
+     */
+    @CanIgnoreReturnValue
+    public Builder parallelism(int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Sets whether moved and copied files are detected.
+     *
+     * @param renameDetectionEnabled the new value
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public Builder renameDetectionEnabled(boolean renameDetectionEnabled) {
+      this.renameDetectionEnabled = renameDetectionEnabled;
+      return this;
+    }
+
+    /**
+     * Sets the minimum similarity of a renamed or copied file to its source.
+     *
+     * @param renameScore the new value in percent
+     * @return {@code this} builder for use in a chained invocation
+     * @throws IllegalArgumentException if the value is not from {@code 0} to {@code 100}
+     */
+    @CanIgnoreReturnValue
+    public Builder renameScore(int renameScore) {
+      if (renameScore < 0 || renameScore > 100) {
+        throw new IllegalArgumentException("Rename score must be from 0 to 100: " + renameScore);
+      }
+      this.renameScore = renameScore;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of added or removed files for which similar content is searched.
+     *
+     * @param renameLimit the new value, {@code 0} for no limit
+     * @return {@code this} builder for use in a chained invocation
+     * @throws IllegalArgumentException if the value is negative
+     */
+    @CanIgnoreReturnValue
+    public Builder renameLimit(int renameLimit) {
+      if (renameLimit < 0) {
+        throw new IllegalArgumentException("Rename limit can not be negative: " + renameLimit);
+      }
+      this.renameLimit = renameLimit;
+      return this;
+    }
+
+    /**
+     * Sets what is compared.
+     *
+     * @param diffSource the new value
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public Builder diffSource(DiffSource diffSource) {
+      this.diffSource = Objects.requireNonNull(diffSource, "diffSource");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of commits walked to find the merge-base.
+     *
+     * @param mergeBaseDepth the new value, {@code 0} for no limit
+     * @return {@code this} builder for use in a chained invocation
+     * @throws IllegalArgumentException if the value is negative
+     */
+    @CanIgnoreReturnValue
+    public Builder mergeBaseDepth(int mergeBaseDepth) {
+      if (mergeBaseDepth < 0) {
+        throw new IllegalArgumentException("Merge-base depth can not be negative: "
+            + mergeBaseDepth);
+      }
+      this.mergeBaseDepth = mergeBaseDepth;
+      return this;
+    }
+
+    /**
+     * Builds a new {@link DiffOptions}.
+     *
+     * @return immutable settings
+     */
+    public DiffOptions build() {
+      return new DiffOptions(this);
+    }
+  }
+}
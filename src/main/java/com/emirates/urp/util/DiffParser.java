@@ -1,24 +1,53 @@
 package com.emirates.urp.util;
 
+import com.emirates.urp.metrics.GitPhase;
+import com.emirates.urp.metrics.Metrics;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.revwalk.filter.RevFilter;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 
 /**
@@ -30,6 +59,19 @@ import org.eclipse.jgit.util.io.DisabledOutputStream;
 @Slf4j
 public final class DiffParser {
 
+    /**
+     * Describes the compared sources in the key of the diff cache.
+     */
+    private static final String MERGE_BASE_SOURCE = "merge-base";
+
+    /**
+     * Creates daemon threads for the parallel diff, so they never keep the JVM alive.
+     */
+    private static final ThreadFactory DIFF_THREAD_FACTORY = new ThreadFactoryBuilder()
+        .setNameFormat("urp-checkstyle-diff-%d")
+        .setDaemon(true)
+        .build();
+
     /**
      * Prevents instantiation.
      */
@@ -41,82 +83,431 @@ public final class DiffParser {
      *
      * @param repositoryPath the path of checkstyle repository
      * @param branchName     the name of the branch to be compared with master
-     * @return a list of {@link GitChange} to represent the changes
+     * @param mainBranch     the name of the main branch
+     * @return a {@link ChangeSet} with changes indexed by the repository relative path
+     * @throws IOException     JGit library exception
+     * @throws GitAPIException JGit library exception
+     */
+    public static ChangeSet parse(String repositoryPath, String branchName, String mainBranch)
+        throws IOException, GitAPIException {
+        return parse(repositoryPath, branchName, mainBranch, DiffOptions.defaults());
+    }
+
+    /**
+     * Parses the diff between a given branch and the master in the give repository path. When the
+     * cache is enabled and both branches point to the same commits as in the previous run, the
+     * changes are loaded from the cache without walking history and diffing trees.
+     *
+     * @param repositoryPath the path of checkstyle repository
+     * @param branchName     the name of the branch to be compared with master
+     * @param mainBranch     the name of the main branch
+     * @param options        settings of the diff
+     * @return a {@link ChangeSet} with changes indexed by the repository relative path
      * @throws IOException     JGit library exception
      * @throws GitAPIException JGit library exception
      */
-    public static List<GitChange> parse(String repositoryPath, String branchName, String mainBranch)
+    public static ChangeSet parse(String repositoryPath, String branchName, String mainBranch,
+        DiffOptions options) throws IOException, GitAPIException {
+        final List<GitChange> changes = new ArrayList<>();
+        stream(repositoryPath, branchName, mainBranch, options, changes::add);
+        return ChangeSet.of(
+            GitRepositories.open(new File(repositoryPath)).getWorkTree().toPath(), changes);
+    }
+
+    /**
+     * Streams the diff between a given branch and the master in the give repository path. Every
+     * changed file is passed to the consumer as soon as its lines are diffed, so the first files
+     * can be used before the whole diff is done and only one file header is alive at a time.
+     * Deleted files are skipped. When the cache is enabled the emitted changes are also kept,
+     * as compact line ranges, to be stored once the diff is complete.
+     * <p>
+     * With {@link DiffSource#INDEX} and {@link DiffSource#WORKTREE} the checked out {@code HEAD}
+     * is compared instead of the given branch, and nothing is cached.
+     *
+     * @param repositoryPath the path of checkstyle repository
+     * @param branchName     the name of the branch to be compared with master
+     * @param mainBranch     the name of the main branch
+     * @param options        settings of the diff
+     * @param consumer       receives changes of every file in the order of paths
+     * @throws IOException     JGit library exception
+     * @throws GitAPIException JGit library exception
+     */
+    public static void stream(String repositoryPath, String branchName, String mainBranch,
+        DiffOptions options, Consumer<? super GitChange> consumer)
         throws IOException, GitAPIException {
-        final List<GitChange> returnValue = new LinkedList<>();
-        final File gitDir = new File(repositoryPath, ".git");
+        final long start = Metrics.start();
+        final Repository repository = GitRepositories.open(new File(repositoryPath));
+        // the handle is shared, keep it open after our close()
+        repository.incrementOpen();
 
-        final Repository repository = new FileRepositoryBuilder()
-            .setGitDir(gitDir)
-            .readEnvironment()
-            .findGitDir()
-            .build();
+        try {
+            switch (options.getDiffSource()) {
+                case INDEX -> diffIndex(repository, options, consumer);
+                case WORKTREE -> diffWorkTree(repository, mainBranch, options, consumer);
+                default -> diffCommitted(repository, branchName, mainBranch, options, consumer);
+            }
+        }
+        finally {
+            repository.close();
+            Metrics.recordGit(start, GitPhase.DIFF);
+        }
+    }
+
+    /**
+     * Computes changes of the PR commit since its merge-base with the master commit, going
+     * through the on-disk cache if it is enabled.
+     *
+     * @param repository the repository to parse
+     * @param branchName the name of the branch to be compared with master
+     * @param mainBranch the name of the main branch
+     * @param options    settings of the diff
+     * @param consumer   receives changes of all files except deleted ones
+     * @throws IOException JGit library exception
+     */
+    private static void diffCommitted(Repository repository, String branchName,
+        String mainBranch, DiffOptions options, Consumer<? super GitChange> consumer)
+        throws IOException {
+        final ObjectId prCommitId = resolveBranch(repository, branchName);
+        final ObjectId masterCommitId = resolveMainBranch(repository, mainBranch);
+        final DiffCache.Key cacheKey =
+            new DiffCache.Key(prCommitId, masterCommitId, describeSource(options));
+
+        if (!options.isCacheEnabled()) {
+            final TreeParserPair pair = getTreeParserPair(repository, prCommitId, masterCommitId,
+                options.getMergeBaseDepth());
+            diff(repository, pair.commonAncestorTreeParser, pair.prTreeParser, TreeFilter.ALL,
+                options, consumer);
+            return;
+        }
+
+        final Path workTree = repository.getWorkTree().toPath();
+        final DiffCache cache = new DiffCache(repository.getDirectory().toPath());
+        final Optional<ChangeSet> cached = cache.load(cacheKey, workTree);
+        if (cached.isPresent()) {
+            log.debug("Using cached diff of {}", cacheKey);
+            cached.get().forEach(consumer);
+            return;
+        }
+
+        final TreeParserPair pair = getTreeParserPair(repository, prCommitId, masterCommitId,
+                options.getMergeBaseDepth());
+        final List<GitChange> changes = new ArrayList<>();
+        diff(repository, pair.commonAncestorTreeParser, pair.prTreeParser, TreeFilter.ALL, options,
+            change -> {
+                changes.add(change);
+                consumer.accept(change);
+            });
+        if (pair.mergeBaseFound) {
+            cache.store(cacheKey, ChangeSet.of(workTree, changes));
+        }
+        else {
+            log.debug("Not caching the diff of {}, it is made without the merge-base", cacheKey);
+        }
+    }
+
+    /**
+     * Computes staged changes: the index against the tree of {@code HEAD}. Both sides are already
+     * in the object database, the work tree is not read.
+     *
+     * @param repository the repository to parse
+     * @param options    settings of the diff
+     * @param consumer   receives changes of all staged files except deleted ones
+     * @throws IOException JGit library exception
+     */
+    private static void diffIndex(Repository repository, DiffOptions options,
+        Consumer<? super GitChange> consumer) throws IOException {
+        final AbstractTreeIterator headTree;
+        final RevWalk walk = new RevWalk(repository);
 
         try {
+            headTree = prepareTreeParser(walk, walk.parseCommit(resolveHead(repository)));
+        }
+        finally {
+            walk.close();
+        }
+
+        diff(repository, headTree, new DirCacheIterator(repository.readDirCache()), TreeFilter.ALL,
+            options, consumer);
+    }
+
+    /**
+     * Computes changes of the work tree since the merge-base of {@code HEAD} with the master.
+     * Candidate paths are found first by comparing the merge-base tree with the index and the
+     * index with the work tree; the latter trusts the size and modification time recorded in the
+     * index, so unchanged files are not read. Only candidates are then hashed and diffed.
+     *
+     * @param repository the repository to parse
+     * @param mainBranch the name of the main branch
+     * @param options    settings of the diff
+     * @param consumer   receives changes of all modified files except deleted ones
+     * @throws IOException JGit library exception
+     */
+    private static void diffWorkTree(Repository repository, String mainBranch,
+        DiffOptions options, Consumer<? super GitChange> consumer) throws IOException {
+        final TreeParserPair pair = getTreeParserPair(repository, resolveHead(repository),
+            resolveMainBranch(repository, mainBranch), options.getMergeBaseDepth());
+        final IndexDiff indexDiff = new IndexDiff(repository, pair.commonAncestorTreeId,
+            new FileTreeIterator(repository));
+        indexDiff.diff();
+
+        final Set<String> paths = new TreeSet<>();
+        paths.addAll(indexDiff.getAdded());
+        paths.addAll(indexDiff.getChanged());
+        paths.addAll(indexDiff.getModified());
+        paths.addAll(indexDiff.getConflicting());
+        // sources of renames
+        paths.addAll(indexDiff.getRemoved());
+        paths.addAll(indexDiff.getMissing());
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        diff(repository, pair.commonAncestorTreeParser, new FileTreeIterator(repository),
+            PathFilterGroup.createFromStrings(paths), options, consumer);
+    }
+
+    /**
+     * Computes changes between two trees. The trees are scanned for changed paths first, which
+     * only yields lightweight entries, then lines of each entry are diffed and passed on,
+     * sequentially or by a pool of threads depending on {@link DiffOptions#getParallelism()}.
+     * A renamed or copied file is diffed against its source, so a pure move yields no changed
+     * lines. Work tree files are not in the object database, so they are always diffed
+     * sequentially by the formatter that scanned them.
+     *
+     * @param repository the repository to parse
+     * @param oldTree    the tree to compare with
+     * @param newTree    the tree with changes
+     * @param pathFilter the paths to compare
+     * @param options    settings of the diff
+     * @param consumer   receives changes of all files except deleted ones
+     * @throws IOException JGit library exception
+     */
+    private static void diff(Repository repository, AbstractTreeIterator oldTree,
+        AbstractTreeIterator newTree, TreeFilter pathFilter, DiffOptions options,
+        Consumer<? super GitChange> consumer) throws IOException {
+        final DiffFormatter formatter = createDiffFormatter(repository);
+        final List<DiffEntry> diffs;
+        formatter.setPathFilter(pathFilter);
+        if (options.isRenameDetectionEnabled()) {
+            formatter.setDetectRenames(true);
+            final RenameDetector renameDetector = formatter.getRenameDetector();
+            renameDetector.setRenameScore(options.getRenameScore());
+            renameDetector.setRenameLimit(options.getRenameLimit());
+        }
 
-            final TreeParserPair pair = getTreeParserPair(repository, branchName, mainBranch);
-
-            final Git git = new Git(repository);
-            final DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
-            formatter.setRepository(repository);
-
-            try {
-                final List<DiffEntry> diffs = git
-                    .diff()
-                    .setOldTree(pair.commonAncestorTreeParser)
-                    .setNewTree(pair.prTreeParser)
-                    .call()
-                    .stream()
-                    .filter(entry -> entry.getChangeType() != DiffEntry.ChangeType.DELETE)
-                    .toList();
+        try {
+            diffs = formatter.scan(oldTree, newTree)
+                .stream()
+                .filter(entry -> entry.getChangeType() != DiffEntry.ChangeType.DELETE)
+                .toList();
+            if (options.getParallelism() == 1 || diffs.size() < 2
+                || newTree instanceof WorkingTreeIterator) {
                 for (DiffEntry diff : diffs) {
-                    returnValue.add(convertDiffEntryToGitChange(diff, formatter));
+                    consumer.accept(convertDiffEntryToGitChange(diff, formatter));
                 }
+                return;
             }
-            finally {
-                git.close();
+        }
+        finally {
+            formatter.close();
+        }
+
+        diffInParallel(repository, diffs, options.getParallelism(), consumer);
+    }
+
+    /**
+     * Diffs lines of the entries on a pool of threads. Every thread has its own formatter, and so
+     * its own object reader, over the shared object database. At most two entries per thread are
+     * in flight, and results are passed to the consumer on the calling thread in the order of
+     * the entries, the same as the sequential diff.
+     *
+     * @param repository  the repository to parse
+     * @param diffs       the entries to diff
+     * @param parallelism the number of threads
+     * @param consumer    receives changes of every entry
+     * @throws IOException JGit library exception
+     */
+    private static void diffInParallel(Repository repository, List<DiffEntry> diffs,
+        int parallelism, Consumer<? super GitChange> consumer) throws IOException {
+        final Queue<DiffFormatter> formatters = new ConcurrentLinkedQueue<>();
+        final ThreadLocal<DiffFormatter> workerFormatter = ThreadLocal.withInitial(() -> {
+            final DiffFormatter formatter = createDiffFormatter(repository);
+            formatters.add(formatter);
+            return formatter;
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(parallelism, diffs.size()), DIFF_THREAD_FACTORY);
+        final Deque<Future<GitChange>> window = new ArrayDeque<>();
+
+        try {
+            for (DiffEntry diff : diffs) {
+                if (window.size() == 2 * parallelism) {
+                    consumer.accept(await(window.poll()));
+                }
+                window.add(executor.submit(
+                    () -> convertDiffEntryToGitChange(diff, workerFormatter.get())));
+            }
+            while (!window.isEmpty()) {
+                consumer.accept(await(window.poll()));
             }
         }
         finally {
-            repository.close();
+            executor.shutdownNow();
+            awaitTermination(executor);
+            formatters.forEach(DiffFormatter::close);
         }
+    }
 
+    /**
+     * Waits for the change computed by a diff thread.
+     *
+     * @param future the result of the diff thread
+     * @return the computed change
+     * @throws IOException JGit library exception thrown by the diff thread, or if the wait was
+     *                     interrupted
+     */
+    private static GitChange await(Future<GitChange> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the diff");
+        }
+        catch (ExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Waits until diff threads release their formatters, so they can be closed.
+     *
+     * @param executor the stopped pool of diff threads
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Diff threads didn't stop in time");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates a formatter that only computes edit lists. It reads objects with its own reader, so
+     * it must not be shared between threads.
+     *
+     * @param repository the repository to read objects of
+     * @return the formatter, to be closed by the caller
+     */
+    private static DiffFormatter createDiffFormatter(Repository repository) {
+        final DiffFormatter returnValue = new DiffFormatter(DisabledOutputStream.INSTANCE);
+        returnValue.setRepository(repository);
         return returnValue;
     }
 
+    /**
+     * Describes the compared sources and the settings that change the result, for the key of the
+     * diff cache.
+     *
+     * @param options settings of the diff
+     * @return the description of the diff
+     */
+    private static String describeSource(DiffOptions options) {
+        if (!options.isRenameDetectionEnabled()) {
+            return MERGE_BASE_SOURCE;
+        }
+        return MERGE_BASE_SOURCE + ";renames=" + options.getRenameScore() + "/"
+            + options.getRenameLimit();
+    }
+
+    /**
+     * Resolves the commit a local branch points to.
+     *
+     * @param repository the repository to look the branch up in
+     * @param branch     the short name of the branch
+     * @return the id of the head commit of the branch
+     * @throws IOException if the branch does not exist or JGit library exception
+     */
+    private static ObjectId resolveBranch(Repository repository, String branch)
+        throws IOException {
+        final Ref ref = repository.exactRef(Constants.R_HEADS + branch);
+        if (ref == null || ref.getObjectId() == null) {
+            throw new IOException(String.format("Can't find branch '%s' in %s", branch,
+                repository.getDirectory()));
+        }
+        return ref.getObjectId();
+    }
+
+    /**
+     * Resolves the checked out commit, a branch or a detached {@code HEAD}.
+     *
+     * @param repository the repository to look {@code HEAD} up in
+     * @return the id of the checked out commit
+     * @throws IOException if nothing is checked out or JGit library exception
+     */
+    private static ObjectId resolveHead(Repository repository) throws IOException {
+        final ObjectId returnValue = repository.resolve(Constants.HEAD);
+        if (returnValue == null) {
+            throw new IOException(String.format("Nothing is checked out in %s",
+                repository.getDirectory()));
+        }
+        return returnValue;
+    }
+
+    /**
+     * Resolves the commit the main branch points to. The remote-tracking branch is preferred, it
+     * is what a PR is merged into and what a fetch updates; the local branch is used when the
+     * repository has no remote-tracking one.
+     *
+     * @param repository the repository to look the branch up in
+     * @param mainBranch the short name of the main branch
+     * @return the id of the head commit of the main branch
+     * @throws IOException if the branch does not exist or JGit library exception
+     */
+    private static ObjectId resolveMainBranch(Repository repository, String mainBranch)
+        throws IOException {
+        final Ref remote = repository.exactRef(
+            Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + mainBranch);
+        if (remote != null && remote.getObjectId() != null) {
+            return remote.getObjectId();
+        }
+        return resolveBranch(repository, mainBranch);
+    }
+
     /**
      * Gets a TreeParserPair for the further use.
      *
-     * @param repository the repository to parse
-     * @param branch     the name of the PR branch
+     * @param repository     the repository to parse
+     * @param prCommitId     the head commit of the PR branch
+     * @param masterCommitId the head commit of the master
+     * @param mergeBaseDepth the limit of commits walked to find the merge-base, {@code 0} for no
+     *                       limit
      * @return the TreeParserPair prepared for the further use
      * @throws IOException JGit library exception
      */
-    private static TreeParserPair getTreeParserPair(Repository repository, String branch,
-        String mainBranch)
+    private static TreeParserPair getTreeParserPair(Repository repository, ObjectId prCommitId,
+        ObjectId masterCommitId, int mergeBaseDepth)
         throws IOException {
         final TreeParserPair returnValue;
         final RevWalk walk = new RevWalk(repository);
 
         try {
-            final RevCommit prCommit = walk.parseCommit(
-                repository
-                    .exactRef(Constants.R_HEADS + branch)
-                    .getObjectId());
-
-            final RevCommit masterCommit = walk.parseCommit(
-                repository
-                    .exactRef(Constants.R_HEADS + mainBranch)
-                    .getObjectId());
-            final RevCommit commonAncestorCommit = getMergeBaseCommit(walk, prCommit, masterCommit);
+            final RevCommit prCommit = walk.parseCommit(prCommitId);
+            final RevCommit masterCommit = walk.parseCommit(masterCommitId);
+            final RevCommit mergeBaseCommit =
+                getMergeBaseCommit(repository, walk, prCommit, masterCommit, mergeBaseDepth);
+            final RevCommit commonAncestorCommit =
+                mergeBaseCommit == null ? masterCommit : mergeBaseCommit;
             walk.dispose();
 
             returnValue = new TreeParserPair(prepareTreeParser(walk, prCommit),
-                prepareTreeParser(walk, commonAncestorCommit));
+                prepareTreeParser(walk, commonAncestorCommit), commonAncestorCommit.getTree(),
+                mergeBaseCommit != null);
         }
         finally {
             walk.close();
@@ -130,11 +521,59 @@ public final class DiffParser {
      * One common ancestor is better than another common ancestor if the latter is an ancestor of the
      * former. A common ancestor that does not have any better common ancestor is a best common
      * ancestor.
+     * <p>
+     * Results are cached by the pair of commits, a repeated run on the same commits doesn't walk
+     * history. When the merge-base isn't found within the depth limit, or the commits have no
+     * common history, nothing is cached and the caller compares with the second commit instead.
+     *
+     * @param repository     the repository the commits belong to
+     * @param walk           the {@link RevWalk} for computing merge bases
+     * @param commitA        the first commit to start the walk with
+     * @param commitB        the second commit to start the walk with
+     * @param mergeBaseDepth the limit of walked commits, {@code 0} for no limit
+     * @return the merge-base of two commits, {@code null} if it isn't found
+     * @throws IOException JGit library exception
+     */
+    private static RevCommit getMergeBaseCommit(Repository repository, RevWalk walk,
+        RevCommit commitA, RevCommit commitB, int mergeBaseDepth) throws IOException {
+        final MergeBaseCache cache = MergeBaseCache.of(repository);
+        final Optional<ObjectId> cached = cache.get(commitA, commitB);
+        if (cached.isPresent()) {
+            log.debug("Using cached merge-base {} of {} and {}", cached.get().name(),
+                commitA.name(), commitB.name());
+            return walk.parseCommit(cached.get());
+        }
+
+        final long start = System.nanoTime();
+        final RevCommit returnValue;
+        if (mergeBaseDepth == 0) {
+            returnValue = getMergeBaseCommit(walk, commitA, commitB);
+        }
+        else {
+            returnValue = getMergeBaseCommit(walk, commitA, commitB, mergeBaseDepth);
+        }
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Metrics.recordGit(start, GitPhase.MERGE_BASE);
+
+        if (returnValue == null) {
+            log.warn("Merge-base of {} and {} not found within {} commits in {} ms, comparing with"
+                    + " {} instead", commitA.name(), commitB.name(),
+                mergeBaseDepth == 0 ? "all" : mergeBaseDepth, millis, commitB.name());
+            return null;
+        }
+        log.info("Merge-base of {} and {} is {}, found in {} ms", commitA.name(), commitB.name(),
+            returnValue.name(), millis);
+        cache.put(commitA, commitB, returnValue);
+        return returnValue;
+    }
+
+    /**
+     * Walks the whole history needed to find the merge-base of two commits.
      *
      * @param walk    the {@link RevWalk} for computing merge bases
      * @param commitA the first commit to start the walk with
      * @param commitB the second commit to start the walk with
-     * @return the merge-base of two commits
+     * @return the merge-base of two commits, {@code null} if they have no common history
      * @throws IOException JGit library exception
      */
     private static RevCommit getMergeBaseCommit(
@@ -146,6 +585,36 @@ public final class DiffParser {
         return walk.next();
     }
 
+    /**
+     * Finds the merge-base of two commits with JGit's merge-base walk, but gives up once the walk
+     * has looked up the given number of commits. The result doesn't depend on commit times, so a
+     * merge-base found within the limit is the same as the one of the unlimited walk.
+     *
+     * @param walk     the {@link RevWalk} the merge-base is returned from
+     * @param commitA  the first commit to start the walk with
+     * @param commitB  the second commit to start the walk with
+     * @param maxDepth the limit of looked up commits, the two commits included
+     * @return the merge-base of two commits, {@code null} if it isn't found within the limit
+     * @throws IOException JGit library exception
+     */
+    private static RevCommit getMergeBaseCommit(
+        RevWalk walk, RevCommit commitA, RevCommit commitB, int maxDepth) throws IOException {
+        try (BoundedRevWalk bounded = new BoundedRevWalk(walk.getObjectReader(), maxDepth)) {
+            bounded.setRetainBody(false);
+            bounded.setRevFilter(RevFilter.MERGE_BASE);
+            for (RevCommit start : new RevCommit[] {commitA, commitB}) {
+                final RevCommit commit = bounded.lookupCommit(start);
+                bounded.parseHeaders(commit);
+                bounded.markStart(commit);
+            }
+            final RevCommit mergeBase = bounded.next();
+            return mergeBase == null ? null : walk.parseCommit(mergeBase);
+        }
+        catch (DepthExceededException e) {
+            return null;
+        }
+    }
+
     /**
      * Creates a tree parser from a commit, to be used by diff command.
      *
@@ -175,34 +644,16 @@ public final class DiffParser {
      */
     private static GitChange convertDiffEntryToGitChange(
         DiffEntry diffEntry, DiffFormatter formatter) throws IOException {
-        final List<Integer> addedLines = formatter
-            .toFileHeader(diffEntry)
-            .toEditList()
-            .stream()
-            .filter(edit -> edit.getBeginB() <= edit.getEndB())
-            .flatMapToInt(edit -> {
-                return IntStream.range(edit.getBeginB(), edit.getEndB());
-            })
-            .boxed()
-            .toList();
-
-        final List<Integer> deletedLines = formatter
-            .toFileHeader(diffEntry)
-            .toEditList()
-            .stream()
-            .filter(edit -> edit.getBeginA() < edit.getEndA())
-            .flatMapToInt(edit -> {
-                return IntStream.range(edit.getBeginA(), edit.getEndA());
-            })
-            .boxed()
-            .toList();
-
-        return ImmutableGitChange
+        final ImmutableGitChange.Builder builder = ImmutableGitChange
             .builder()
-            .path(diffEntry.getNewPath())
-            .addAllAddedLines(addedLines)
-            .addAllDeletedLines(deletedLines)
-            .build();
+            .path(diffEntry.getNewPath());
+
+        for (Edit edit : formatter.toFileHeader(diffEntry).toEditList()) {
+            builder.addAddedRange(edit.getBeginB(), edit.getEndB());
+            builder.addDeletedRange(edit.getBeginA(), edit.getEndA());
+        }
+
+        return builder.build();
     }
 
     /**
@@ -220,17 +671,90 @@ public final class DiffParser {
          */
         private final AbstractTreeIterator commonAncestorTreeParser;
 
+        /**
+         * The tree of the merge-base commit between PR branch and master.
+         */
+        private final ObjectId commonAncestorTreeId;
+
+        /**
+         * Whether the merge-base was found; otherwise the head of master is compared with and the
+         * diff depends on the depth limit, so it must not be cached.
+         */
+        private final boolean mergeBaseFound;
+
         /**
          * Creates a new TreeParserPair instance.
          *
          * @param prTreeParser             the tree parser of the head commit of PR branch
          * @param commonAncestorTreeParser the tree parser of the merge-base commit between PR branch
          *                                 and master
+         * @param commonAncestorTreeId     the tree of the merge-base commit
+         * @param mergeBaseFound           whether the merge-base was found within the depth limit
          */
-        TreeParserPair(
-            AbstractTreeIterator prTreeParser, AbstractTreeIterator commonAncestorTreeParser) {
+        TreeParserPair(AbstractTreeIterator prTreeParser,
+            AbstractTreeIterator commonAncestorTreeParser, ObjectId commonAncestorTreeId,
+            boolean mergeBaseFound) {
             this.prTreeParser = prTreeParser;
             this.commonAncestorTreeParser = commonAncestorTreeParser;
+            this.commonAncestorTreeId = commonAncestorTreeId.copy();
+            this.mergeBaseFound = mergeBaseFound;
+        }
+    }
+
+    /**
+     * A {@link RevWalk} that stops with {@link DepthExceededException} when it is about to look up
+     * more commits than allowed. It shares the object reader of another walk and doesn't close
+     * it.
+     */
+    private static final class BoundedRevWalk extends RevWalk {
+
+        /**
+         * Number of commits that may still be looked up.
+         */
+        private int remaining;
+
+        /**
+         * Creates a new BoundedRevWalk instance.
+         *
+         * @param reader   the object reader of the repository
+         * @param maxDepth the limit of looked up commits
+         */
+        BoundedRevWalk(ObjectReader reader, int maxDepth) {
+            super(reader);
+            this.remaining = maxDepth;
+        }
+
+        @Override
+        public RevCommit lookupCommit(AnyObjectId id) {
+            count(id);
+            return super.lookupCommit(id);
+        }
+
+        @Override
+        protected RevCommit lookupCommit(AnyObjectId id, int graphPos) {
+            count(id);
+            return super.lookupCommit(id, graphPos);
+        }
+
+        private void count(AnyObjectId id) {
+            if (lookupOrNull(id) == null && remaining-- == 0) {
+                throw new DepthExceededException();
+            }
+        }
+    }
+
+    /**
+     * Thrown by {@link BoundedRevWalk} to stop the walk, it carries no stack trace.
+     */
+    private static final class DepthExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates a new DepthExceededException instance.
+         */
+        DepthExceededException() {
+            super(null, null, false, false);
         }
     }
 }
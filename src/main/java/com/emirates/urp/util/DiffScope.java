@@ -0,0 +1,147 @@
+package com.emirates.urp.util;
+
+import com.google.common.base.MoreObjects;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configurable;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable main branch and diff options a git-aware module requests its change set with.
+ * <p>
+ * Modules with equal scopes share one change set of {@link ChangeSetProvider}, and results of a
+ * file depend on its changed lines in the change sets of all scopes of a configuration.
+ */
+public final class DiffScope {
+
+  private final String mainBranch;
+
+  private final DiffOptions options;
+
+  /**
+   * Creates a scope.
+   *
+   * @param mainBranch the main git branch the current branch is compared with
+   * @param options    the diff options
+   */
+  public DiffScope(String mainBranch, DiffOptions options) {
+    this.mainBranch = Objects.requireNonNull(mainBranch, "mainBranch");
+    this.options = Objects.requireNonNull(options, "options");
+  }
+
+  /**
+   * Configures every module of the configuration that implements {@link GitAwareModule} and
+   * returns their distinct scopes, the change sets the modules request from
+   * {@link ChangeSetProvider}. Modules are only configured, not initialized, so nothing is fetched
+   * or checked.
+   *
+   * @param configuration     the checkstyle configuration
+   * @param moduleClassLoader the class loader of checkstyle modules
+   * @return the scopes in configuration order
+   * @throws IllegalArgumentException if a module couldn't be created or configured
+   */
+  public static List<DiffScope> collect(Configuration configuration,
+      ClassLoader moduleClassLoader) {
+    final List<DiffScope> scopes = new ArrayList<>();
+    collect(configuration, newModuleFactory(moduleClassLoader), scopes);
+    return scopes;
+  }
+
+  /**
+   * The main git branch the current branch is compared with.
+   *
+   * @return the name of the main branch
+   */
+  public String getMainBranch() {
+    return mainBranch;
+  }
+
+  /**
+   * The diff options the changes are parsed with.
+   *
+   * @return the diff options
+   */
+  public DiffOptions getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns changes of the current branch in this scope, shared with equal scopes.
+   *
+   * @return the change set
+   * @see ChangeSetProvider#getChangeSet(String, DiffOptions)
+   */
+  public ChangeSet getChangeSet() {
+    return ChangeSetProvider.getInstance().getChangeSet(mainBranch, options);
+  }
+
+  private static void collect(Configuration configuration, ModuleFactory factory,
+      List<DiffScope> scopes) {
+    final Configuration[] children = configuration.getChildren();
+    if (children.length == 0) {
+      final Object module = createModule(configuration, factory);
+      if (module instanceof GitAwareModule) {
+        final DiffScope scope = ((GitAwareModule) module).getDiffScope();
+        if (!scopes.contains(scope)) {
+          scopes.add(scope);
+        }
+      }
+    }
+    for (Configuration child : children) {
+      collect(child, factory, scopes);
+    }
+  }
+
+  private static Object createModule(Configuration configuration, ModuleFactory factory) {
+    try {
+      final Object module = factory.createModule(configuration.getName());
+      if (module instanceof GitAwareModule && module instanceof Configurable) {
+        ((Configurable) module).configure(configuration);
+      }
+      return module;
+    } catch (CheckstyleException e) {
+      throw new IllegalArgumentException("Couldn't configure module "
+          + configuration.getName(), e);
+    }
+  }
+
+  private static ModuleFactory newModuleFactory(ClassLoader moduleClassLoader) {
+    try {
+      return new PackageObjectFactory(PackageNamesLoader.getPackageNames(moduleClassLoader),
+          moduleClassLoader);
+    } catch (CheckstyleException e) {
+      throw new IllegalArgumentException("Couldn't load checkstyle package names", e);
+    }
+  }
+
+  @Override
+  public boolean equals(@Nullable Object another) {
+    if (this == another) {
+      return true;
+    }
+    if (!(another instanceof DiffScope)) {
+      return false;
+    }
+    final DiffScope scope = (DiffScope) another;
+    return mainBranch.equals(scope.mainBranch) && options.equals(scope.options);
+  }
+
+  @Override
+  public int hashCode() {
+    return mainBranch.hashCode() * 31 + options.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("mainBranch", mainBranch)
+        .add("options", options)
+        .toString();
+  }
+}
@@ -0,0 +1,39 @@
+package com.emirates.urp.util;
+
+import java.util.Locale;
+
+/**
+ * What {@link DiffParser} compares.
+ */
+public enum DiffSource {
+
+  /**
+   * The head commit of the branch against its merge-base with the main branch. Uncommitted edits
+   * are not visible.
+   */
+  COMMITTED,
+
+  /**
+   * The staged index against {@code HEAD}, what the next commit would change. Objects of the index
+   * are already hashed, so nothing in the work tree is read. Use it in pre-commit hooks.
+   */
+  INDEX,
+
+  /**
+   * The work tree against the merge-base of {@code HEAD} with the main branch, committed, staged
+   * and unstaged edits together. Files whose size and modification time match the index are not
+   * read, only the rest is hashed and diffed. Untracked files are not included.
+   */
+  WORKTREE;
+
+  /**
+   * Converts a value of the check property, for example {@code index}, to the source.
+   *
+   * @param value camel case or upper case name of the source
+   * @return the source
+   * @throws IllegalArgumentException if there is no such source
+   */
+  public static DiffSource parse(String value) {
+    return valueOf(value.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT));
+  }
+}
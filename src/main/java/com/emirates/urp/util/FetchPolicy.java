@@ -0,0 +1,41 @@
+package com.emirates.urp.util;
+
+import java.util.Locale;
+
+/**
+ * When changes of the main branch are fetched from the remote repository before the diff.
+ */
+public enum FetchPolicy {
+
+  /**
+   * Never fetch, the diff uses remote-tracking refs as they are. Use it on runners without network.
+   */
+  NEVER,
+
+  /**
+   * Fetch and wait for it only when {@code FETCH_HEAD} is missing or older than the configured age.
+   */
+  IF_STALE,
+
+  /**
+   * Start the fetch and continue checking. The diff uses the remote-tracking refs the fetch has
+   * already updated, or the previous ones if it has not finished yet.
+   */
+  BACKGROUND,
+
+  /**
+   * Always fetch and wait for it.
+   */
+  ALWAYS;
+
+  /**
+   * Converts a value of the check property, for example {@code ifStale}, to the policy.
+   *
+   * @param value camel case or upper case name of the policy
+   * @return the policy
+   * @throws IllegalArgumentException if there is no such policy
+   */
+  public static FetchPolicy parse(String value) {
+    return valueOf(value.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,18 @@
+package com.emirates.urp.util;
+
+/**
+ * A checkstyle module whose results depend on git changes of the current branch.
+ * <p>
+ * Tools that run checkstyle, such as the result cache of the parallel runner, configure the
+ * module and read its scope to learn which change set it uses.
+ */
+public interface GitAwareModule {
+
+  /**
+   * The main branch and diff options the module requests changes with.
+   *
+   * @return the scope of the configured module
+   * @throws IllegalArgumentException if a diff option is out of its range
+   */
+  DiffScope getDiffScope();
+}
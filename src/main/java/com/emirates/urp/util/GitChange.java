@@ -35,17 +35,35 @@ public interface GitChange {
    */
   String path();
 
+  /**
+   * The added changes as sorted line ranges. The first line of a file is marked as line zero.
+   *
+   * @return the index of added lines
+   */
+  ChangedLineIndex addedLineIndex();
+
+  /**
+   * The deleted changes as sorted line ranges. The first line of a file is marked as line zero.
+   *
+   * @return the index of deleted lines
+   */
+  ChangedLineIndex deletedLineIndex();
+
   /**
    * The line numbers of the added changes. The first line of a file is marked as line zero.
    *
    * @return the line numbers of the added changes
    */
-  List<Integer> addedLines();
+  default List<Integer> addedLines() {
+    return addedLineIndex().asList();
+  }
 
   /**
    * The line numbers of the deleted changes. The first line of a file is marked as line zero.
    *
    * @return the line numbers of the deleted changes
    */
-  List<Integer> deletedLines();
+  default List<Integer> deletedLines() {
+    return deletedLineIndex().asList();
+  }
 }
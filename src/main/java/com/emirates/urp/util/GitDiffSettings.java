@@ -0,0 +1,166 @@
+package com.emirates.urp.util;
+
+import java.time.Duration;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Git settings of a git-aware module: the main branch, the diff options and when to fetch.
+ * <p>
+ * Checks and filters keep an instance and delegate their property setters to it, so every module
+ * has the same properties with the same defaults, and modules configured alike request the same
+ * change set from {@link ChangeSetProvider}.
+ */
+@NotThreadSafe
+public final class GitDiffSettings {
+
+  /**
+   * Default age of the last fetch after which it is repeated, one hour.
+   */
+  private static final int DEFAULT_FETCH_STALE_SECONDS = 3600;
+
+  /**
+   * The main git branch the current branch is compared with.
+   */
+  private String mainBranch = "main";
+
+  /**
+   * Control whether parsed git changes are cached in the git directory between runs.
+   */
+  private boolean diffCacheEnabled = true;
+
+  /**
+   * Number of threads that diff lines of changed files.
+   */
+  private int diffParallelism = 1;
+
+  /**
+   * Control whether moved and copied files are diffed against their sources.
+   */
+  private boolean renameDetectionEnabled = true;
+
+  /**
+   * Minimum similarity in percent of a moved or copied file to its source.
+   */
+  private int renameScore = DiffOptions.DEFAULT_RENAME_SCORE;
+
+  /**
+   * Maximum number of added or removed files for which renames are searched by content.
+   */
+  private int renameLimit = DiffOptions.DEFAULT_RENAME_LIMIT;
+
+  /**
+   * What is compared: committed changes of the branch, the staged index or the work tree.
+   */
+  private DiffSource diffSource = DiffSource.COMMITTED;
+
+  /**
+   * Maximum number of commits walked to find the merge-base with the main branch.
+   */
+  private int mergeBaseDepth;
+
+  /**
+   * When the main branch is fetched from the remote repository.
+   */
+  private FetchPolicy fetchPolicy = FetchPolicy.IF_STALE;
+
+  /**
+   * Age of the last fetch in seconds after which {@link FetchPolicy#IF_STALE} fetches again.
+   */
+  private int fetchStaleSeconds = DEFAULT_FETCH_STALE_SECONDS;
+
+  public void setMainBranch(String mainBranch) {
+    this.mainBranch = mainBranch;
+  }
+
+  public void setDiffCacheEnabled(boolean diffCacheEnabled) {
+    this.diffCacheEnabled = diffCacheEnabled;
+  }
+
+  public void setDiffParallelism(int diffParallelism) {
+    this.diffParallelism = diffParallelism;
+  }
+
+  public void setRenameDetectionEnabled(boolean renameDetectionEnabled) {
+    this.renameDetectionEnabled = renameDetectionEnabled;
+  }
+
+  public void setRenameScore(int renameScore) {
+    this.renameScore = renameScore;
+  }
+
+  public void setRenameLimit(int renameLimit) {
+    this.renameLimit = renameLimit;
+  }
+
+  public void setDiffSource(DiffSource diffSource) {
+    this.diffSource = diffSource;
+  }
+
+  public void setMergeBaseDepth(int mergeBaseDepth) {
+    this.mergeBaseDepth = mergeBaseDepth;
+  }
+
+  public void setFetchPolicy(FetchPolicy fetchPolicy) {
+    this.fetchPolicy = fetchPolicy;
+  }
+
+  public void setFetchStaleSeconds(int fetchStaleSeconds) {
+    this.fetchStaleSeconds = fetchStaleSeconds;
+  }
+
+  /**
+   * The main git branch the current branch is compared with.
+   *
+   * @return the name of the main branch
+   */
+  public String getMainBranch() {
+    return mainBranch;
+  }
+
+  /**
+   * Builds diff options of the current values.
+   *
+   * @return the diff options
+   * @throws IllegalArgumentException if a value is out of its range
+   */
+  public DiffOptions getDiffOptions() {
+    return DiffOptions.builder()
+        .cacheEnabled(diffCacheEnabled)
+        .parallelism(diffParallelism)
+        .renameDetectionEnabled(renameDetectionEnabled)
+        .renameScore(renameScore)
+        .renameLimit(renameLimit)
+        .diffSource(diffSource)
+        .mergeBaseDepth(mergeBaseDepth)
+        .build();
+  }
+
+  /**
+   * Fetches the repository of the working directory according to the fetch policy.
+   *
+   * @see ChangeSetProvider#fetch(FetchPolicy, Duration)
+   */
+  public void fetch() {
+    ChangeSetProvider.getInstance().fetch(fetchPolicy, Duration.ofSeconds(fetchStaleSeconds));
+  }
+
+  /**
+   * Returns the main branch and diff options of the current values.
+   *
+   * @return the scope
+   * @throws IllegalArgumentException if a value is out of its range
+   */
+  public DiffScope getDiffScope() {
+    return new DiffScope(mainBranch, getDiffOptions());
+  }
+
+  /**
+   * Returns changes of the current branch, shared with modules that have the same settings.
+   *
+   * @return the change set
+   * @see DiffScope#getChangeSet()
+   */
+  public ChangeSet getChangeSet() {
+    return getDiffScope().getChangeSet();
+  }
+}
@@ -0,0 +1,92 @@
+package com.emirates.urp.util;
+
+import static org.apache.commons.lang3.SystemProperties.USER_DIR;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+/**
+ * Shared in-process JGit repositories.
+ * <p>
+ * A repository is opened once per git directory and kept open for the lifetime of the JVM, all
+ * git work of the checks goes through these handles instead of forking a git process. Callers
+ * that close what they get must call {@link Repository#incrementOpen()} first, so the shared
+ * handle stays open.
+ */
+@Slf4j
+@UtilityClass
+public class GitRepositories {
+
+  private static final ConcurrentMap<File, Repository> REPOSITORIES = new ConcurrentHashMap<>();
+
+  private static final String COMMIT_GRAPH = "commitGraph";
+
+  /**
+   * Returns the repository of the working directory of the JVM.
+   *
+   * @return the shared repository
+   * @throws IllegalStateException if the working directory is not inside a git repository
+   */
+  public static Repository current() {
+    return open(new File(System.getProperty(USER_DIR)));
+  }
+
+  /**
+   * Returns the repository the directory belongs to. The directory may be the work tree, any of
+   * its subdirectories or the git directory itself.
+   *
+   * @param directory a directory inside the repository
+   * @return the shared repository
+   * @throws IllegalStateException if the directory is not inside a git repository
+   */
+  public static Repository open(File directory) {
+    final FileRepositoryBuilder builder = new FileRepositoryBuilder()
+        .readEnvironment()
+        .findGitDir(directory.getAbsoluteFile());
+    if (builder.getGitDir() == null) {
+      throw new IllegalStateException(
+          String.format("Can't find git repository for directory %s", directory));
+    }
+    final Repository repository = REPOSITORIES.computeIfAbsent(
+        builder.getGitDir().getAbsoluteFile(), gitDir -> {
+          try {
+            log.debug("Opening git repository '{}'", gitDir);
+            return builder.setMustExist(true).build();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    enableCommitGraph(repository);
+    return repository;
+  }
+
+  /**
+   * Lets JGit read the commit-graph file written by {@code git commit-graph write} or
+   * {@code git gc}. It stores parents and generation numbers of all commits, so history walks,
+   * like the merge-base lookup, don't inflate every commit object. JGit ignores the file unless
+   * {@code core.commitGraph} is set, so it is enabled in memory when the file exists and the
+   * option is not configured. The configuration on disk is not changed. JGit reloads the
+   * configuration when the file changes and drops the in-memory value, so it is applied again
+   * every time the repository is handed out.
+   *
+   * @param repository the opened repository
+   */
+  private static void enableCommitGraph(Repository repository) {
+    final File commitGraph = new File(repository.getDirectory(), "objects/info/commit-graph");
+    final StoredConfig config = repository.getConfig();
+    if (commitGraph.isFile()
+        && config.getString(ConfigConstants.CONFIG_CORE_SECTION, null, COMMIT_GRAPH) == null) {
+      log.debug("Using commit-graph '{}'", commitGraph);
+      config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, COMMIT_GRAPH, true);
+    }
+  }
+}
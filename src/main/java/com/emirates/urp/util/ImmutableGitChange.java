@@ -1,8 +1,6 @@
 package com.emirates.urp.util;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.collect.ImmutableList;
-import com.google.common.primitives.Ints;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.errorprone.annotations.Var;
 import java.util.ArrayList;
@@ -19,13 +17,13 @@ import javax.annotation.concurrent.NotThreadSafe;
 public final class ImmutableGitChange implements GitChange {
 
   private final String path;
-  private final ImmutableList<Integer> addedLines;
-  private final ImmutableList<Integer> deletedLines;
+  private final ChangedLineIndex addedLines;
+  private final ChangedLineIndex deletedLines;
 
   private ImmutableGitChange(
       String path,
-      ImmutableList<Integer> addedLines,
-      ImmutableList<Integer> deletedLines) {
+      ChangedLineIndex addedLines,
+      ChangedLineIndex deletedLines) {
     this.path = path;
     this.addedLines = addedLines;
     this.deletedLines = deletedLines;
@@ -42,22 +40,22 @@ public final class ImmutableGitChange implements GitChange {
   }
 
   /**
-   * The line numbers of the added changes. The first line of a file is marked as line zero.
+   * The added changes as sorted line ranges. The first line of a file is marked as line zero.
    *
-   * @return the line numbers of the added changes
+   * @return the index of added lines
    */
   @Override
-  public ImmutableList<Integer> addedLines() {
+  public ChangedLineIndex addedLineIndex() {
     return addedLines;
   }
 
   /**
-   * The line numbers of the deleted changes. The first line of a file is marked as line zero.
+   * The deleted changes as sorted line ranges. The first line of a file is marked as line zero.
    *
-   * @return the line numbers of the deleted changes
+   * @return the index of deleted lines
    */
   @Override
-  public ImmutableList<Integer> deletedLines() {
+  public ChangedLineIndex deletedLineIndex() {
     return deletedLines;
   }
 
@@ -85,7 +83,7 @@ public final class ImmutableGitChange implements GitChange {
    * @return A modified copy of {@code this} object
    */
   public final ImmutableGitChange withAddedLines(int... elements) {
-    ImmutableList<Integer> newValue = ImmutableList.copyOf(Ints.asList(elements));
+    ChangedLineIndex newValue = ChangedLineIndex.of(elements);
     return new ImmutableGitChange(this.path, newValue, this.deletedLines);
   }
 
@@ -98,10 +96,23 @@ public final class ImmutableGitChange implements GitChange {
    * @return A modified copy of {@code this} object
    */
   public final ImmutableGitChange withAddedLines(Iterable<Integer> elements) {
-    if (this.addedLines == elements) {
+    ChangedLineIndex newValue = ChangedLineIndex.builder().addAll(elements).build();
+    return withAddedLineIndex(newValue);
+  }
+
+  /**
+   * Copy the current immutable object with the index that replaces
+   * {@link GitChange#addedLineIndex() addedLineIndex}. An equals check used to prevent copying of
+   * the same value by returning {@code this}.
+   *
+   * @param value A new index of added lines
+   * @return A modified copy of {@code this} object
+   */
+  public final ImmutableGitChange withAddedLineIndex(ChangedLineIndex value) {
+    ChangedLineIndex newValue = Objects.requireNonNull(value, "addedLineIndex");
+    if (this.addedLines.equals(newValue)) {
       return this;
     }
-    ImmutableList<Integer> newValue = ImmutableList.copyOf(elements);
     return new ImmutableGitChange(this.path, newValue, this.deletedLines);
   }
 
@@ -113,7 +124,7 @@ public final class ImmutableGitChange implements GitChange {
    * @return A modified copy of {@code this} object
    */
   public final ImmutableGitChange withDeletedLines(int... elements) {
-    ImmutableList<Integer> newValue = ImmutableList.copyOf(Ints.asList(elements));
+    ChangedLineIndex newValue = ChangedLineIndex.of(elements);
     return new ImmutableGitChange(this.path, this.addedLines, newValue);
   }
 
@@ -126,10 +137,23 @@ public final class ImmutableGitChange implements GitChange {
    * @return A modified copy of {@code this} object
    */
   public final ImmutableGitChange withDeletedLines(Iterable<Integer> elements) {
-    if (this.deletedLines == elements) {
+    ChangedLineIndex newValue = ChangedLineIndex.builder().addAll(elements).build();
+    return withDeletedLineIndex(newValue);
+  }
+
+  /**
+   * Copy the current immutable object with the index that replaces
+   * {@link GitChange#deletedLineIndex() deletedLineIndex}. An equals check used to prevent copying
+   * of the same value by returning {@code this}.
+   *
+   * @param value A new index of deleted lines
+   * @return A modified copy of {@code this} object
+   */
+  public final ImmutableGitChange withDeletedLineIndex(ChangedLineIndex value) {
+    ChangedLineIndex newValue = Objects.requireNonNull(value, "deletedLineIndex");
+    if (this.deletedLines.equals(newValue)) {
       return this;
     }
-    ImmutableList<Integer> newValue = ImmutableList.copyOf(elements);
     return new ImmutableGitChange(this.path, this.addedLines, newValue);
   }
 
@@ -205,8 +229,8 @@ public final class ImmutableGitChange implements GitChange {
    * <pre>
    * ImmutableGitChange.builder()
    *    .path(String) // required {@link GitChange#path() path}
-   *    .addAddedLines|addAllAddedLines(int) // {@link GitChange#addedLines() addedLines} elements
-   *    .addDeletedLines|addAllDeletedLines(int) // {@link GitChange#deletedLines() deletedLines} elements
+   *    .addAddedLines|addAddedRange|addAllAddedLines(int) // {@link GitChange#addedLines() addedLines} elements
+   *    .addDeletedLines|addDeletedRange|addAllDeletedLines(int) // {@link GitChange#deletedLines() deletedLines} elements
    *    .build();
    * </pre>
    *
@@ -230,8 +254,8 @@ public final class ImmutableGitChange implements GitChange {
     private long initBits = 0x1L;
 
     private @Nullable String path;
-    private ImmutableList.Builder<Integer> addedLines = ImmutableList.builder();
-    private ImmutableList.Builder<Integer> deletedLines = ImmutableList.builder();
+    private ChangedLineIndex.Builder addedLines = ChangedLineIndex.builder();
+    private ChangedLineIndex.Builder deletedLines = ChangedLineIndex.builder();
 
     private Builder() {
     }
@@ -249,8 +273,8 @@ public final class ImmutableGitChange implements GitChange {
     public final Builder from(GitChange instance) {
       Objects.requireNonNull(instance, "instance");
       path(instance.path());
-      addAllAddedLines(instance.addedLines());
-      addAllDeletedLines(instance.deletedLines());
+      this.addedLines.addAll(instance.addedLineIndex());
+      this.deletedLines.addAll(instance.deletedLineIndex());
       return this;
     }
 
@@ -275,7 +299,7 @@ public final class ImmutableGitChange implements GitChange {
      */
     @CanIgnoreReturnValue
     public final Builder addAddedLines(int element) {
-      this.addedLines.add(element);
+      this.addedLines.addLine(element);
       return this;
     }
 
@@ -287,7 +311,23 @@ public final class ImmutableGitChange implements GitChange {
      */
     @CanIgnoreReturnValue
     public final Builder addAddedLines(int... elements) {
-      this.addedLines.addAll(Ints.asList(elements));
+      for (int element : elements) {
+        this.addedLines.addLine(element);
+      }
+      return this;
+    }
+
+    /**
+     * Adds lines of {@code [begin, end)} to {@link GitChange#addedLines() addedLines} without
+     * enumerating them.
+     *
+     * @param begin the first added line
+     * @param end   the line following the last added line
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public final Builder addAddedRange(int begin, int end) {
+      this.addedLines.addRange(begin, end);
       return this;
     }
 
@@ -300,7 +340,7 @@ public final class ImmutableGitChange implements GitChange {
      */
     @CanIgnoreReturnValue
     public final Builder addedLines(Iterable<Integer> elements) {
-      this.addedLines = ImmutableList.builder();
+      this.addedLines = ChangedLineIndex.builder();
       return addAllAddedLines(elements);
     }
 
@@ -316,6 +356,19 @@ public final class ImmutableGitChange implements GitChange {
       return this;
     }
 
+    /**
+     * Sets or replaces all elements for {@link GitChange#addedLines() addedLines} with ranges of
+     * the given index.
+     *
+     * @param index the index of added lines
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public final Builder addedLineIndex(ChangedLineIndex index) {
+      this.addedLines = ChangedLineIndex.builder().addAll(index);
+      return this;
+    }
+
     /**
      * Adds one element to {@link GitChange#deletedLines() deletedLines} list.
      *
@@ -324,7 +377,7 @@ public final class ImmutableGitChange implements GitChange {
      */
     @CanIgnoreReturnValue
     public final Builder addDeletedLines(int element) {
-      this.deletedLines.add(element);
+      this.deletedLines.addLine(element);
       return this;
     }
 
@@ -336,7 +389,23 @@ public final class ImmutableGitChange implements GitChange {
      */
     @CanIgnoreReturnValue
     public final Builder addDeletedLines(int... elements) {
-      this.deletedLines.addAll(Ints.asList(elements));
+      for (int element : elements) {
+        this.deletedLines.addLine(element);
+      }
+      return this;
+    }
+
+    /**
+     * Adds lines of {@code [begin, end)} to {@link GitChange#deletedLines() deletedLines} without
+     * enumerating them.
+     *
+     * @param begin the first deleted line
+     * @param end   the line following the last deleted line
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public final Builder addDeletedRange(int begin, int end) {
+      this.deletedLines.addRange(begin, end);
       return this;
     }
 
@@ -349,7 +418,7 @@ public final class ImmutableGitChange implements GitChange {
      */
     @CanIgnoreReturnValue
     public final Builder deletedLines(Iterable<Integer> elements) {
-      this.deletedLines = ImmutableList.builder();
+      this.deletedLines = ChangedLineIndex.builder();
       return addAllDeletedLines(elements);
     }
 
@@ -365,6 +434,19 @@ public final class ImmutableGitChange implements GitChange {
       return this;
     }
 
+    /**
+     * Sets or replaces all elements for {@link GitChange#deletedLines() deletedLines} with ranges
+     * of the given index.
+     *
+     * @param index the index of deleted lines
+     * @return {@code this} builder for use in a chained invocation
+     */
+    @CanIgnoreReturnValue
+    public final Builder deletedLineIndex(ChangedLineIndex index) {
+      this.deletedLines = ChangedLineIndex.builder().addAll(index);
+      return this;
+    }
+
     /**
      * Builds a new {@link ImmutableGitChange ImmutableGitChange}.
      *
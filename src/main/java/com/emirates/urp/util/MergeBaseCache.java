@@ -0,0 +1,165 @@
+package com.emirates.urp.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Cache of merge-bases of pairs of commits, kept in memory and in the git directory.
+ * <p>
+ * A merge-base is a pure function of the two commits, so results never go stale. The file keeps
+ * the most recent {@value #MAX_ENTRIES} pairs, one per line: the two commit ids and their
+ * merge-base, separated by spaces.
+ */
+@Slf4j
+final class MergeBaseCache {
+
+  private static final String FILE_NAME = "merge-base.cache";
+
+  private static final int MAX_ENTRIES = 64;
+
+  private static final ConcurrentMap<Path, MergeBaseCache> CACHES = new ConcurrentHashMap<>();
+
+  private final Path file;
+
+  /**
+   * Merge-bases by pairs of commits in the order they were added, {@code null} until the file is
+   * read. Guarded by {@code this}.
+   */
+  private Map<Key, ObjectId> mergeBases;
+
+  private MergeBaseCache(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the cache of the repository, shared by all callers in the JVM.
+   *
+   * @param repository the repository the commits belong to
+   * @return the cache
+   */
+  static MergeBaseCache of(Repository repository) {
+    return CACHES.computeIfAbsent(repository.getDirectory().toPath().toAbsolutePath(),
+        gitDir -> new MergeBaseCache(gitDir.resolve(DiffCache.DIRECTORY).resolve(FILE_NAME)));
+  }
+
+  /**
+   * Looks up the merge-base of two commits.
+   *
+   * @param commitA the first commit
+   * @param commitB the second commit
+   * @return the merge-base stored for the pair, empty if it hasn't been computed yet
+   */
+  synchronized Optional<ObjectId> get(AnyObjectId commitA, AnyObjectId commitB) {
+    return Optional.ofNullable(load().get(new Key(commitA, commitB)));
+  }
+
+  /**
+   * Stores the merge-base of two commits and writes the cache file.
+   *
+   * @param commitA   the first commit
+   * @param commitB   the second commit
+   * @param mergeBase their merge-base
+   */
+  synchronized void put(AnyObjectId commitA, AnyObjectId commitB, AnyObjectId mergeBase) {
+    final Map<Key, ObjectId> loaded = load();
+    final Key key = new Key(commitA, commitB);
+    loaded.remove(key);
+    loaded.put(key, mergeBase.copy());
+    while (loaded.size() > MAX_ENTRIES) {
+      loaded.remove(loaded.keySet().iterator().next());
+    }
+    store(loaded);
+  }
+
+  private Map<Key, ObjectId> load() {
+    if (mergeBases != null) {
+      return mergeBases;
+    }
+    mergeBases = new LinkedHashMap<>();
+    try {
+      for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+        final String[] ids = line.split(" ");
+        if (ids.length == 3 && ObjectId.isId(ids[0]) && ObjectId.isId(ids[1])
+            && ObjectId.isId(ids[2])) {
+          mergeBases.put(new Key(ObjectId.fromString(ids[0]), ObjectId.fromString(ids[1])),
+              ObjectId.fromString(ids[2]));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // nothing cached yet
+    } catch (IOException e) {
+      log.debug("Ignoring unreadable merge-base cache '{}'", file, e);
+    }
+    return mergeBases;
+  }
+
+  private void store(Map<Key, ObjectId> entries) {
+    try {
+      Files.createDirectories(file.getParent());
+      final Path temporary = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+      try {
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary,
+            StandardCharsets.US_ASCII)) {
+          for (Map.Entry<Key, ObjectId> entry : entries.entrySet()) {
+            writer.write(String.join(" ", List.of(entry.getKey().commitA.name(),
+                entry.getKey().commitB.name(), entry.getValue().name())));
+            writer.newLine();
+          }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      log.debug("Couldn't write merge-base cache '{}'", file, e);
+    }
+  }
+
+  /**
+   * An ordered pair of commits.
+   */
+  private static final class Key {
+
+    private final ObjectId commitA;
+    private final ObjectId commitB;
+
+    private Key(AnyObjectId commitA, AnyObjectId commitB) {
+      this.commitA = commitA.copy();
+      this.commitB = commitB.copy();
+    }
+
+    @Override
+    public boolean equals(Object another) {
+      if (this == another) {
+        return true;
+      }
+      if (!(another instanceof Key)) {
+        return false;
+      }
+      final Key key = (Key) another;
+      return commitA.equals(key.commitA) && commitB.equals(key.commitB);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(commitA, commitB);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.emirates.urp.checks;
+
+import com.emirates.urp.fixture.TestCheckstyle;
+import org.junit.jupiter.api.Test;
+
+class AnnotationsWithoutEmptyLinesCheckerTest {
+
+  private static final String MESSAGE = "Empty lines or comments between annotations or between "
+      + "annotation and method signature are not allowed.";
+
+  @Test
+  void shouldReportEachGapOnce() {
+    TestCheckstyle checkstyle = new TestCheckstyle(AnnotationsWithoutEmptyLinesChecker.class);
+
+    checkstyle.check("AnnotationsWithoutEmptyLinesChecker/AnnotatedTestClass.java");
+    checkstyle.assertViolationCount(5);
+    for (int line : new int[]{5, 10, 12, 39, 49}) {
+      checkstyle.assertViolation(line, 1, MESSAGE);
+    }
+  }
+}
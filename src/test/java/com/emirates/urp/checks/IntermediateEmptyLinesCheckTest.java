@@ -0,0 +1,58 @@
+package com.emirates.urp.checks;
+
+import com.emirates.urp.fixture.TestCheckstyle;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IntermediateEmptyLinesCheckTest {
+
+  private static final String MESSAGE =
+      "It is not allowed to use two empty lines following each other in methods and constructors.";
+
+  private static final int DEPTH = 40;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldReportViolations() {
+    TestCheckstyle checkstyle = new TestCheckstyle(IntermediateEmptyLinesCheck.class);
+
+    checkstyle.check("IntermediateEmptyLinesCheck/EmptyLinesTestClass.java");
+    checkstyle.assertViolationCount(15);
+    for (int line : new int[]{11, 12, 32, 33, 45, 46, 47, 53, 54, 57, 58, 68, 69, 77, 78}) {
+      checkstyle.assertViolation(line, 1, MESSAGE);
+    }
+  }
+
+  @Test
+  void shouldReportViolationsInDeeplyNestedLambdas() throws IOException {
+    TestCheckstyle checkstyle = new TestCheckstyle(IntermediateEmptyLinesCheck.class);
+
+    checkstyle.check(nestedLambdas(DEPTH));
+    // empty lines inside the text block are not reported
+    checkstyle.assertViolationCount(2);
+    checkstyle.assertViolation(DEPTH + 9, 1, MESSAGE);
+    checkstyle.assertViolation(DEPTH + 10, 1, MESSAGE);
+  }
+
+  private File nestedLambdas(int depth) throws IOException {
+    StringBuilder source = new StringBuilder("class Nested {\n  void method() {\n");
+    for (int i = 0; i < depth; i++) {
+      source.append("Runnable r").append(i).append(" = () -> {\n");
+    }
+    source.append("String text = \"\"\"\n    text\n\n\n    block\n    \"\"\";\n\n\n");
+    source.append("text.length();\n");
+    for (int i = 0; i < depth; i++) {
+      source.append("};\n");
+    }
+    source.append("  }\n}\n");
+    Path file = directory.resolve("Nested.java");
+    Files.writeString(file, source);
+    return file.toFile();
+  }
+}
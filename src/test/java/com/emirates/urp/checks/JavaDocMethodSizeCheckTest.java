@@ -0,0 +1,127 @@
+package com.emirates.urp.checks;
+
+import com.emirates.urp.fixture.TestCheckstyle;
+import com.emirates.urp.util.ChangeSetProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks files of a feature branch of a temporary repository, the working directory is switched to
+ * the repository.
+ */
+class JavaDocMethodSizeCheckTest {
+
+  private static final String LONG_METHOD = "  void %s() {\n"
+      + "    int a = 1;\n"
+      + "    a++;\n"
+      + "    a++;\n"
+      + "  }\n";
+
+  @TempDir
+  Path directory;
+
+  private String userDir;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Git git = Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call()) {
+      Files.writeString(directory.resolve("Unchanged.java"), "class Unchanged {\n\n"
+          + String.format(LONG_METHOD, "longWithoutJavadoc") + "}\n");
+      commit(git);
+      git.checkout().setCreateBranch(true).setName("feature").call();
+      Files.writeString(directory.resolve("Changed.java"), "class Changed {\n\n"
+          + String.format(LONG_METHOD, "longWithoutJavadoc")
+          + "\n"
+          + "  /**\n"
+          + "   * Documented.\n"
+          + "   */\n"
+          + String.format(LONG_METHOD, "longWithJavadoc")
+          + "\n"
+          + "  void shortWithoutJavadoc() {\n"
+          + "    int a = 1;\n"
+          + "  }\n"
+          + "}\n");
+      commit(git);
+    }
+    userDir = System.getProperty("user.dir");
+    System.setProperty("user.dir", directory.toString());
+    ChangeSetProvider.getInstance().invalidate();
+  }
+
+  @AfterEach
+  void tearDown() {
+    System.setProperty("user.dir", userDir);
+    ChangeSetProvider.getInstance().invalidate();
+  }
+
+  @Test
+  void shouldReportLongMethodsWithoutJavadocInChangedFiles() {
+    TestCheckstyle checkstyle = newCheckstyle();
+
+    checkstyle.check(directory.resolve("Changed.java").toFile());
+    checkstyle.assertViolationCount(1);
+    checkstyle.assertViolation(3, 3,
+        "Methods longer than 3 lines must have a JavaDoc comment. Current size is 5 lines.");
+  }
+
+  @Test
+  void shouldSkipFilesOutsideOfChangeSet() {
+    TestCheckstyle checkstyle = newCheckstyle();
+
+    checkstyle.check(directory.resolve("Unchanged.java").toFile());
+    checkstyle.assertNoViolations();
+  }
+
+  @Test
+  void shouldCheckAllFilesWithoutGit() {
+    TestCheckstyle checkstyle = new TestCheckstyle(JavaDocMethodSizeCheck.class,
+        c -> c.addProperty("max", "3"));
+
+    checkstyle.check(directory.resolve("Unchanged.java").toFile());
+    checkstyle.assertViolationCount(1);
+  }
+
+  @Test
+  void shouldCheckAllFilesOutsideOfRepository(@TempDir Path outside) throws Exception {
+    Files.copy(directory.resolve("Unchanged.java"), outside.resolve("Unchanged.java"));
+    System.setProperty("user.dir", outside.toString());
+    ChangeSetProvider.getInstance().invalidate();
+    TestCheckstyle checkstyle = newCheckstyle();
+
+    checkstyle.check(outside.resolve("Unchanged.java").toFile());
+    checkstyle.assertViolationCount(1);
+  }
+
+  @Test
+  void shouldSkipFilesNotMatchingClassNamesRegex() {
+    TestCheckstyle checkstyle = new TestCheckstyle(JavaDocMethodSizeCheck.class, c -> {
+      c.addProperty("max", "3");
+      c.addProperty("enabledGit", "true");
+      c.addProperty("fetchPolicy", "never");
+      c.addProperty("diffCacheEnabled", "false");
+      c.addProperty("ignoreClassNamesRegex", "Other.*");
+    });
+
+    checkstyle.check(directory.resolve("Changed.java").toFile());
+    checkstyle.assertNoViolations();
+  }
+
+  private static TestCheckstyle newCheckstyle() {
+    return new TestCheckstyle(JavaDocMethodSizeCheck.class, c -> {
+      c.addProperty("max", "3");
+      c.addProperty("enabledGit", "true");
+      c.addProperty("fetchPolicy", "never");
+      c.addProperty("diffCacheEnabled", "false");
+    });
+  }
+
+  private static void commit(Git git) throws Exception {
+    git.add().addFilepattern(".").call();
+    git.commit().setMessage("commit").call();
+  }
+}
@@ -0,0 +1,98 @@
+package com.emirates.urp.checks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.emirates.urp.util.ChangedLineIndex;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Changed lines of a method are matched by interval query, the result must be the same as matching
+ * boxed line sets did before.
+ */
+class MissingJavaDocMethodUrpCheckLinesTest {
+
+  private static final int FILE_LENGTH = 2_000;
+
+  @Test
+  void shouldMatchSameMethodsAsLineSets() {
+    final Random random = new Random(42);
+    for (int sample = 0; sample < 200; sample++) {
+      final ChangedLineIndex changedLines = randomChanges(random);
+      for (int method = 0; method < 200; method++) {
+        final int firstLine = 1 + random.nextInt(FILE_LENGTH);
+        final int lastLine = firstLine + random.nextInt(60);
+
+        assertEquals(matchesByLineSet(changedLines.asList(), firstLine, lastLine),
+            MissingJavaDocMethodUrpCheck.isAnyLineChanged(changedLines, firstLine, lastLine),
+            () -> String.format("Lines %s-%s, changes %s", firstLine, lastLine, changedLines));
+      }
+    }
+  }
+
+  @Test
+  void shouldMatchMethodBoundaries() {
+    // zero-based lines 9 and 10 are one-based 10 and 11
+    final ChangedLineIndex changedLines = ChangedLineIndex.ofRanges(9, 11);
+
+    assertTrue(MissingJavaDocMethodUrpCheck.isAnyLineChanged(changedLines, 11, 20));
+    assertTrue(MissingJavaDocMethodUrpCheck.isAnyLineChanged(changedLines, 1, 10));
+    assertFalse(MissingJavaDocMethodUrpCheck.isAnyLineChanged(changedLines, 12, 20));
+    assertFalse(MissingJavaDocMethodUrpCheck.isAnyLineChanged(changedLines, 1, 9));
+  }
+
+  @Test
+  void shouldNotAllocatePerMethod() {
+    final ChangedLineIndex changedLines = randomChanges(new Random(7));
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+
+    // warm up, so the measured loop does not include class loading and compilation
+    int matched = countMatches(changedLines);
+    final long before = threads.getThreadAllocatedBytes(threadId);
+    matched += countMatches(changedLines);
+    final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+    assertTrue(matched > 0);
+    assertTrue(allocated < 1024,
+        () -> "Expected no allocation per method but " + allocated + " bytes were allocated");
+  }
+
+  private static int countMatches(ChangedLineIndex changedLines) {
+    int matched = 0;
+    for (int firstLine = 1; firstLine < FILE_LENGTH; firstLine++) {
+      if (MissingJavaDocMethodUrpCheck.isAnyLineChanged(changedLines, firstLine, firstLine + 40)) {
+        matched++;
+      }
+    }
+    return matched;
+  }
+
+  private static ChangedLineIndex randomChanges(Random random) {
+    final ChangedLineIndex.Builder builder = ChangedLineIndex.builder();
+    final int hunks = random.nextInt(20);
+    for (int hunk = 0; hunk < hunks; hunk++) {
+      final int begin = random.nextInt(FILE_LENGTH);
+      builder.addRange(begin, begin + random.nextInt(30));
+    }
+    return builder.build();
+  }
+
+  /**
+   * The way the check matched lines before, kept as the reference.
+   */
+  private static boolean matchesByLineSet(List<Integer> changedLines, int firstLine,
+      int lastLine) {
+    final Set<Integer> methodLines = IntStream.range(firstLine, lastLine + 1).boxed()
+        .collect(Collectors.toSet());
+    return changedLines.stream().map(it -> it + 1).anyMatch(methodLines::contains);
+  }
+}
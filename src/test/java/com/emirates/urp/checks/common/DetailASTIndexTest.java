@@ -0,0 +1,113 @@
+package com.emirates.urp.checks.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DetailASTIndexTest {
+
+  private static final String SOURCE = "package sample;\n"
+      + "@interface Marker {\n"
+      + "  class InAnnotation {\n"
+      + "    void method() {\n"
+      + "    }\n"
+      + "  }\n"
+      + "}\n"
+      + "class Outer {\n"
+      + "  Outer() {\n"
+      + "  }\n"
+      + "  void method() {\n"
+      + "    class Local {\n"
+      + "      void local() {\n"
+      + "      }\n"
+      + "    }\n"
+      + "    Runnable anonymous = new Runnable() {\n"
+      + "      public void run() {\n"
+      + "      }\n"
+      + "    };\n"
+      + "  }\n"
+      + "  interface Inner {\n"
+      + "    enum Nested {\n"
+      + "      VALUE;\n"
+      + "      void nested() {\n"
+      + "      }\n"
+      + "    }\n"
+      + "  }\n"
+      + "  record Data(int value) {\n"
+      + "    Data {\n"
+      + "    }\n"
+      + "  }\n"
+      + "}\n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldFindTheSameRootClassNamesAsDetailASTUtil() throws Exception {
+    DetailAST root = parse(SOURCE);
+    DetailASTIndex index = DetailASTIndex.of(root);
+
+    DetailASTUtil.walk(root, it -> {
+      assertEquals(DetailASTUtil.getRootClassName(it), index.getRootClassName(it),
+          () -> "root class name of " + it);
+      return true;
+    });
+    assertEquals("InAnnotation", index.getRootClassName(findMethod(root, "method")));
+    assertNull(index.getRootClassName(root.findFirstToken(TokenTypes.ANNOTATION_DEF)));
+    assertEquals("Outer", index.getRootClassName(findMethod(root, "run")));
+    assertEquals("Outer", index.getRootClassName(findMethod(root, "nested")));
+  }
+
+  @Test
+  void shouldFindChildrenByType() throws Exception {
+    DetailAST outer = parse(SOURCE).findFirstToken(TokenTypes.CLASS_DEF);
+    DetailASTIndex index = DetailASTIndex.of(outer);
+    DetailAST objBlock = outer.findFirstToken(TokenTypes.OBJBLOCK);
+
+    List<DetailAST> methods = index.getChildren(objBlock, TokenTypes.METHOD_DEF);
+
+    assertEquals(1, methods.size());
+    assertSame(objBlock.findFirstToken(TokenTypes.METHOD_DEF), methods.get(0));
+    assertSame(objBlock.findFirstToken(TokenTypes.LCURLY),
+        index.findFirstChild(objBlock, TokenTypes.LCURLY));
+    assertSame(objBlock.getLastChild(), index.findLastChild(objBlock, TokenTypes.RCURLY));
+    assertNull(index.findFirstChild(objBlock, TokenTypes.ENUM_DEF));
+    assertEquals(List.of(), index.getChildren(objBlock, TokenTypes.ENUM_DEF));
+  }
+
+  @Test
+  void shouldShareTheIndexOfTheTreeUntilReleased() throws Exception {
+    DetailAST root = parse(SOURCE);
+    DetailASTIndex index = DetailASTIndex.of(root);
+
+    assertSame(index, DetailASTIndex.of(root));
+    DetailASTIndex.release(root);
+    assertNotSame(index, DetailASTIndex.of(root));
+    DetailASTIndex.release(root);
+  }
+
+  private DetailAST parse(String source) throws Exception {
+    File file = directory.resolve("Sample.java").toFile();
+    Files.writeString(file.toPath(), source);
+    return JavaParser.parseFile(file, JavaParser.Options.WITH_COMMENTS);
+  }
+
+  private static DetailAST findMethod(DetailAST root, String name) {
+    return DetailASTUtil.streamRecursively(root)
+        .filter(it -> it.getType() == TokenTypes.METHOD_DEF)
+        .filter(it -> name.equals(it.findFirstToken(TokenTypes.IDENT).getText()))
+        .findFirst()
+        .orElseThrow();
+  }
+}
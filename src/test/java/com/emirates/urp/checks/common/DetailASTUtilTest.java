@@ -0,0 +1,101 @@
+package com.emirates.urp.checks.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.utils.TokenUtil;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DetailASTUtilTest {
+
+  private static final int CONSTANTS = 5000;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldWalkWideTreesWithoutRecursion() throws Exception {
+    DetailAST root = parse("enum Generated {\n"
+        + IntStream.range(0, CONSTANTS)
+        .mapToObj(i -> "  C" + i).collect(Collectors.joining(",\n"))
+        + ";\n}\n");
+    AtomicInteger constants = new AtomicInteger();
+
+    assertTrue(DetailASTUtil.walk(root, TokenUtil.asBitSet(TokenTypes.ENUM_CONSTANT_DEF), it -> {
+      constants.incrementAndGet();
+      return true;
+    }));
+    assertEquals(CONSTANTS, constants.get());
+    assertEquals(DetailASTUtil.traverse(root).size(), countNodes(root));
+  }
+
+  @Test
+  void shouldWalkParentsBeforeChildren() throws Exception {
+    DetailAST root = parse("class Sample {\n  void method() {\n    int value = 1;\n  }\n}\n");
+    List<DetailAST> nodes = new ArrayList<>();
+
+    DetailASTUtil.walk(root, it -> {
+      nodes.add(it);
+      return true;
+    });
+
+    assertEquals(root, nodes.get(0));
+    for (DetailAST node : nodes.subList(1, nodes.size())) {
+      assertTrue(nodes.indexOf(node.getParent()) < nodes.indexOf(node));
+    }
+    assertEquals(nodes.subList(1, nodes.size()), DetailASTUtil.streamRecursively(root).toList());
+  }
+
+  @Test
+  void shouldStopWhenVisitorReturnsFalse() throws Exception {
+    DetailAST root = parse("class Sample {\n  void first() {\n  }\n  void second() {\n  }\n}\n");
+    List<String> methods = new ArrayList<>();
+
+    assertFalse(DetailASTUtil.walk(root, TokenUtil.asBitSet(TokenTypes.METHOD_DEF), it -> {
+      methods.add(it.findFirstToken(TokenTypes.IDENT).getText());
+      return false;
+    }));
+    assertEquals(List.of("first"), methods);
+  }
+
+  @Test
+  void shouldWalkOnlyDescendants() throws Exception {
+    DetailAST sample = parse("class Sample {\n}\nclass Other {\n}\n").getFirstChild();
+    List<DetailAST> nodes = new ArrayList<>();
+
+    DetailASTUtil.walkDescendants(sample, it -> {
+      nodes.add(it);
+      return true;
+    });
+
+    assertEquals(TokenTypes.CLASS_DEF, sample.getNextSibling().getType());
+    assertFalse(nodes.contains(sample));
+    assertFalse(nodes.contains(sample.getNextSibling()));
+    assertEquals(countNodes(sample) - 1, nodes.size());
+  }
+
+  private DetailAST parse(String source) throws Exception {
+    File file = directory.resolve("Sample.java").toFile();
+    Files.writeString(file.toPath(), source);
+    return JavaParser.parseFile(file, JavaParser.Options.WITH_COMMENTS);
+  }
+
+  private static int countNodes(DetailAST root) {
+    AtomicInteger count = new AtomicInteger();
+    DetailASTUtil.walk(root, it -> count.incrementAndGet() > 0);
+    return count.get();
+  }
+}
@@ -0,0 +1,124 @@
+package com.emirates.urp.checks.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.emirates.urp.checks.AnnotationsWithoutEmptyLinesChecker;
+import com.emirates.urp.checks.EmptyLineAtTheEndChecker;
+import com.emirates.urp.checks.IntermediateEmptyLinesCheck;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LineTableTest {
+
+  private static final FileText TEXT = new FileText(new File("Sample.java"), List.of(
+      "class Sample {",
+      "",
+      "  \t ",
+      "  // comment",
+      "  /* block",
+      "",
+      "     end */",
+      "  String text = \"\"\"",
+      "",
+      "      \"\"\";",
+      "  String url = \"http://host/*\";",
+      "  int value; // trailing",
+      "  /* one */ /* two */",
+      "}"));
+
+  private static final FileContents CONTENTS = new FileContents(TEXT);
+
+  @Test
+  void shouldClassifyLines() {
+    LineTable table = LineTable.of(CONTENTS);
+
+    assertEquals(List.of(1, 2), matching(table, Kind.BLANK));
+    assertEquals(List.of(3, 4, 5, 6, 12), matching(table, Kind.COMMENT));
+    assertEquals(List.of(0, 7, 8, 9, 10, 11, 13), matching(table, Kind.CODE));
+    LineTable.release(CONTENTS);
+  }
+
+  @Test
+  void shouldFindBlankOrCommentLinesInRange() {
+    LineTable table = LineTable.of(CONTENTS);
+
+    assertTrue(table.hasBlankOrComment(0, 2));
+    assertTrue(table.hasBlankOrComment(3, 4));
+    assertFalse(table.hasBlankOrComment(7, 12));
+    assertFalse(table.hasBlankOrComment(13, 14));
+    LineTable.release(CONTENTS);
+  }
+
+  @Test
+  void shouldShareTheTableOfTheTextUntilReleased() {
+    LineTable table = LineTable.of(CONTENTS);
+
+    assertSame(table, LineTable.of(CONTENTS));
+    LineTable.release(CONTENTS);
+    assertNotSame(table, LineTable.of(CONTENTS));
+    LineTable.release(CONTENTS);
+  }
+
+  @Test
+  void shouldScanOnceForAllChecksAndWalksOfFile(@TempDir Path directory) throws Exception {
+    final Path file = directory.resolve("Sample.java");
+    Files.writeString(file, "class Sample {\n"
+        + "  // comment\n"
+        + "  @Deprecated\n"
+        + "  void method() {\n"
+        + "    int value = 1;\n"
+        + "  }\n"
+        + "}\n");
+    final DefaultConfiguration treeWalker = new DefaultConfiguration(TreeWalker.class.getName());
+    treeWalker.addChild(new DefaultConfiguration(EmptyLineAtTheEndChecker.class.getName()));
+    treeWalker.addChild(
+        new DefaultConfiguration(AnnotationsWithoutEmptyLinesChecker.class.getName()));
+    treeWalker.addChild(new DefaultConfiguration(IntermediateEmptyLinesCheck.class.getName()));
+    final DefaultConfiguration configuration = new DefaultConfiguration("Checker");
+    configuration.addChild(treeWalker);
+    final Checker checker = new Checker();
+    checker.setModuleClassLoader(Checker.class.getClassLoader());
+    checker.configure(configuration);
+    final long before = LineTable.scanCount();
+
+    checker.process(List.of(file.toFile()));
+    checker.destroy();
+
+    assertEquals(1, LineTable.scanCount() - before);
+  }
+
+  private static List<Integer> matching(LineTable table, Kind kind) {
+    return IntStream.range(0, table.size())
+        .filter(index -> kind.matches(table, index))
+        .boxed()
+        .toList();
+  }
+
+  private enum Kind {
+    BLANK,
+    COMMENT,
+    CODE;
+
+    private boolean matches(LineTable table, int index) {
+      return switch (this) {
+        case BLANK -> table.isBlank(index);
+        case COMMENT -> table.isComment(index);
+        case CODE -> !table.isBlank(index) && !table.isComment(index);
+      };
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package com.emirates.urp.daemon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.emirates.urp.checks.IntermediateEmptyLinesCheck;
+import com.emirates.urp.filters.GitChangedFilesFilter;
+import com.emirates.urp.util.ChangeSetProvider;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Serves requests of the client from a daemon running on another thread.
+ */
+class CheckDaemonTest {
+
+  private static final String SAMPLE = "class Sample {\n  void method() {\n    int value = 1;\n\n\n"
+      + "    value++;\n  }\n}\n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldCheckFilesAndWatchRefs() throws Exception {
+    Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call().close();
+    final Path gitDirectory = directory.resolve(".git");
+    final Path socket = gitDirectory.resolve(CheckDaemon.SOCKET_FILE);
+    final Path file = directory.resolve("Sample.java");
+    Files.writeString(file, SAMPLE);
+
+    try (CheckDaemon daemon = new CheckDaemon(configuration(), socket, gitDirectory)) {
+      final CompletableFuture<Void> serving = CompletableFuture.runAsync(() -> {
+        try {
+          daemon.serve();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      final ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+      final int errors = CheckClient.request(socket, CheckDaemon.CHECK_COMMAND, List.of(file),
+          new PrintStream(report, true, StandardCharsets.UTF_8));
+      final int warmErrors = CheckClient.request(socket, CheckDaemon.CHECK_COMMAND,
+          List.of(file), new PrintStream(new ByteArrayOutputStream(), true,
+              StandardCharsets.UTF_8));
+
+      assertEquals(2, errors);
+      assertEquals(2, warmErrors);
+      assertTrue(report.toString(StandardCharsets.UTF_8).contains("Sample.java:4"),
+          report::toString);
+
+      Files.writeString(gitDirectory.resolve("refs/heads/other"), "0".repeat(40) + "\n");
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (daemon.getRefChanges() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(50);
+      }
+      assertTrue(daemon.getRefChanges() > 0);
+
+      assertEquals(0, CheckClient.request(socket, CheckDaemon.STOP_COMMAND, List.of(),
+          new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8)));
+      serving.get(10, TimeUnit.SECONDS);
+    }
+    assertTrue(Files.notExists(socket));
+  }
+
+  @Test
+  void shouldDisconnectClientThatDoesNotSendRequest() throws Exception {
+    Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call().close();
+    final Path gitDirectory = directory.resolve(".git");
+    final Path socket = gitDirectory.resolve(CheckDaemon.SOCKET_FILE);
+    final Path file = directory.resolve("Sample.java");
+    Files.writeString(file, SAMPLE);
+
+    try (CheckDaemon daemon = new CheckDaemon(configuration(), socket, gitDirectory)) {
+      daemon.setReadTimeout(Duration.ofMillis(200));
+      final CompletableFuture<Void> serving = serve(daemon);
+      try (SocketChannel silent = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+        silent.write(ByteBuffer.wrap("check\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, CompletableFuture.supplyAsync(() -> {
+          try {
+            return check(socket, file);
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        }).get(10, TimeUnit.SECONDS));
+        assertEquals(-1, silent.read(ByteBuffer.allocate(1)), "the silent client is disconnected");
+      }
+      stop(socket, serving);
+    }
+  }
+
+  @Test
+  void shouldReloadChangesWhenFilesAreStaged() throws Exception {
+    final String userDir = System.getProperty("user.dir");
+    try (Git git = Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call()) {
+      Files.writeString(directory.resolve("Other.java"), "class Other {\n}\n");
+      git.add().addFilepattern(".").call();
+      git.commit().setMessage("commit").call();
+      git.checkout().setCreateBranch(true).setName("feature").call();
+      final Path file = directory.resolve("Sample.java");
+      Files.writeString(file, SAMPLE);
+      System.setProperty("user.dir", directory.toString());
+      ChangeSetProvider.getInstance().invalidate();
+      final Path gitDirectory = directory.resolve(".git");
+      final Path socket = gitDirectory.resolve(CheckDaemon.SOCKET_FILE);
+
+      try (CheckDaemon daemon = new CheckDaemon(gitAwareConfiguration("index"), socket,
+          gitDirectory)) {
+        final CompletableFuture<Void> serving = serve(daemon);
+        final int unstaged = check(socket, file);
+        final int changes = daemon.getRefChanges();
+
+        git.add().addFilepattern("Sample.java").call();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (daemon.getRefChanges() == changes && System.nanoTime() < deadline) {
+          Thread.sleep(50);
+        }
+
+        assertEquals(0, unstaged, "the filter drops files that aren't staged");
+        assertEquals(2, check(socket, file));
+        stop(socket, serving);
+      }
+    } finally {
+      System.setProperty("user.dir", userDir);
+      ChangeSetProvider.getInstance().invalidate();
+    }
+  }
+
+  @Test
+  void shouldReloadWorkTreeChangesWithEveryRequest() throws Exception {
+    final String userDir = System.getProperty("user.dir");
+    try (Git git = Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call()) {
+      final Path file = directory.resolve("Sample.java");
+      Files.writeString(file, "class Sample {\n}\n");
+      git.add().addFilepattern(".").call();
+      git.commit().setMessage("commit").call();
+      git.checkout().setCreateBranch(true).setName("feature").call();
+      System.setProperty("user.dir", directory.toString());
+      ChangeSetProvider.getInstance().invalidate();
+      final Path gitDirectory = directory.resolve(".git");
+      final Path socket = gitDirectory.resolve(CheckDaemon.SOCKET_FILE);
+
+      try (CheckDaemon daemon = new CheckDaemon(gitAwareConfiguration("worktree"), socket,
+          gitDirectory)) {
+        final CompletableFuture<Void> serving = serve(daemon);
+        final int unchanged = check(socket, file);
+
+        Files.writeString(file, SAMPLE);
+
+        assertEquals(0, unchanged);
+        assertEquals(2, check(socket, file));
+        stop(socket, serving);
+      }
+    } finally {
+      System.setProperty("user.dir", userDir);
+      ChangeSetProvider.getInstance().invalidate();
+    }
+  }
+
+  private static CompletableFuture<Void> serve(CheckDaemon daemon) {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        daemon.serve();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+  }
+
+  private static int check(Path socket, Path file) throws Exception {
+    return CheckClient.request(socket, CheckDaemon.CHECK_COMMAND, List.of(file),
+        new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+  }
+
+  private static void stop(Path socket, CompletableFuture<Void> serving) throws Exception {
+    assertEquals(0, CheckClient.request(socket, CheckDaemon.STOP_COMMAND, List.of(),
+        new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8)));
+    serving.get(10, TimeUnit.SECONDS);
+  }
+
+  private static DefaultConfiguration gitAwareConfiguration(String diffSource) {
+    final DefaultConfiguration filter =
+        new DefaultConfiguration(GitChangedFilesFilter.class.getName());
+    filter.addProperty("diffSource", diffSource);
+    filter.addProperty("diffCacheEnabled", "false");
+    final DefaultConfiguration checker = configuration();
+    checker.addChild(filter);
+    return checker;
+  }
+
+  private static DefaultConfiguration configuration() {
+    final DefaultConfiguration treeWalker = new DefaultConfiguration(TreeWalker.class.getName());
+    treeWalker.addChild(new DefaultConfiguration(IntermediateEmptyLinesCheck.class.getName()));
+    final DefaultConfiguration checker = new DefaultConfiguration("Checker");
+    checker.addChild(treeWalker);
+    return checker;
+  }
+}
@@ -0,0 +1,53 @@
+package com.emirates.urp.filters;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.emirates.urp.util.ChangeSet;
+import com.emirates.urp.util.ImmutableGitChange;
+import com.puppycrawl.tools.checkstyle.ModuleFactory;
+import com.puppycrawl.tools.checkstyle.PackageNamesLoader;
+import com.puppycrawl.tools.checkstyle.PackageObjectFactory;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitChangedFilesFilterTest {
+
+  @TempDir
+  Path root;
+
+  @Test
+  void shouldAcceptOnlyChangedFiles() {
+    final GitChangedFilesFilter filter = new GitChangedFilesFilter(ChangeSet.of(root,
+        List.of(ImmutableGitChange.builder().path("src/Changed.java").addAddedLines(0).build())));
+
+    assertTrue(filter.accept(root.resolve("src/Changed.java").toString()));
+    assertFalse(filter.accept(root.resolve("src/Unchanged.java").toString()));
+  }
+
+  @Test
+  void shouldAcceptEverythingWithoutChangeSet() {
+    final GitChangedFilesFilter filter = new GitChangedFilesFilter(ChangeSet.empty());
+
+    assertTrue(filter.accept(root.resolve("src/Unchanged.java").toString()));
+  }
+
+  @Test
+  void shouldDropEverythingWhenBranchHasNoChanges() {
+    final GitChangedFilesFilter filter = new GitChangedFilesFilter(ChangeSet.of(root, List.of()));
+
+    assertFalse(filter.accept(root.resolve("src/Unchanged.java").toString()));
+  }
+
+  @Test
+  void shouldBeCreatedByShortName() throws Exception {
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    final ModuleFactory factory = new PackageObjectFactory(
+        PackageNamesLoader.getPackageNames(classLoader), classLoader);
+
+    assertInstanceOf(GitChangedFilesFilter.class, factory.createModule("GitChangedFilesFilter"));
+  }
+}
@@ -64,8 +64,12 @@ public class TestCheckstyle {
   }
 
   public void check(String checkedFile) {
+    check(checkedFile(checkedFile));
+  }
+
+  public void check(File checkedFile) {
     try {
-      checker.process(List.of(checkedFile(checkedFile)));
+      checker.process(List.of(checkedFile));
     } catch (CheckstyleException e) {
       throw new RuntimeException(e);
     }
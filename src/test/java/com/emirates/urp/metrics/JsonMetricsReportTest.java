@@ -0,0 +1,158 @@
+package com.emirates.urp.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.emirates.urp.checks.EmptyLineAtTheEndChecker;
+import com.emirates.urp.checks.IntermediateEmptyLinesCheck;
+import com.emirates.urp.runner.ParallelCheckerRunner;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks files with a report installed and reads the numbers back from its JSON.
+ */
+class JsonMetricsReportTest {
+
+  private static final int FILES = 6;
+
+  private static final int METHODS = 3;
+
+  @TempDir
+  Path directory;
+
+  @AfterEach
+  void tearDown() {
+    Metrics.setRecorder(null);
+  }
+
+  @Test
+  void shouldReportChecksSkippedFilesAndAllocations() throws Exception {
+    final List<File> files = writeFiles();
+    final Path cacheFile = directory.resolve("results");
+    final JsonMetricsReport report = new JsonMetricsReport();
+    Metrics.setRecorder(report);
+
+    check(files, cacheFile);
+    check(files, cacheFile);
+    final Path reportFile = directory.resolve("report/metrics.json");
+    report.write(reportFile);
+    final String json = Files.readString(reportFile);
+
+    final String intermediate = section(json, IntermediateEmptyLinesCheck.class);
+    assertEquals(FILES, count(intermediate, "beginTree"), json);
+    assertEquals(FILES * METHODS, count(intermediate, "visitToken"), json);
+    assertTrue(intermediate.contains("\"tokensVisited\": " + FILES * METHODS), json);
+    assertEquals(FILES, count(section(json, EmptyLineAtTheEndChecker.class), "finishTree"), json);
+    assertTrue(json.contains("\"" + ParallelCheckerRunner.class.getName() + "\": " + FILES),
+        json);
+    assertTrue(Pattern.compile("\"urp-checkstyle-checker-\\d+\": [1-9]").matcher(json).find(),
+        json);
+  }
+
+  @Test
+  void shouldSampleAllocationsOncePerFile() throws Exception {
+    final List<File> files = writeFiles();
+    final AtomicInteger samples = new AtomicInteger();
+    Metrics.setRecorder(new MetricsRecorder() {
+      @Override
+      public void recordCheck(Class<?> check, CheckPhase phase, long nanos) {
+        // only allocations are counted
+      }
+
+      @Override
+      public void recordSkippedFile(Class<?> source) {
+        // only allocations are counted
+      }
+
+      @Override
+      public void recordGit(GitPhase phase, long nanos) {
+        // only allocations are counted
+      }
+
+      @Override
+      public void recordAllocation(String thread, long allocatedBytes) {
+        samples.incrementAndGet();
+      }
+    });
+    final DefaultConfiguration configuration = configuration();
+    configuration.addChild(new DefaultConfiguration(AllocationSampler.class.getName()));
+    final Checker checker = new Checker();
+    checker.setModuleClassLoader(Checker.class.getClassLoader());
+    checker.configure(configuration);
+
+    checker.process(files);
+    checker.destroy();
+
+    assertEquals(FILES, samples.get());
+  }
+
+  @Test
+  void shouldNotTimeWithoutRecorder() {
+    assertFalse(Metrics.isEnabled());
+    assertEquals(0, Metrics.start());
+    assertEquals("{\n  \"checks\": {},\n  \"skippedFiles\": {},\n  \"git\": {},\n"
+        + "  \"threadAllocatedBytes\": {}\n}\n", new JsonMetricsReport().toJson());
+  }
+
+  private static void check(List<File> files, Path cacheFile) throws Exception {
+    ParallelCheckerRunner.builder()
+        .configuration(configuration())
+        .threads(2)
+        .resultCache(cacheFile)
+        .build()
+        .process(files);
+  }
+
+  private static DefaultConfiguration configuration() {
+    final DefaultConfiguration treeWalker = new DefaultConfiguration(TreeWalker.class.getName());
+    treeWalker.addChild(new DefaultConfiguration(IntermediateEmptyLinesCheck.class.getName()));
+    treeWalker.addChild(new DefaultConfiguration(EmptyLineAtTheEndChecker.class.getName()));
+    final DefaultConfiguration checker = new DefaultConfiguration("Checker");
+    checker.addChild(treeWalker);
+    return checker;
+  }
+
+  private static String section(String json, Class<?> check) {
+    final int start = json.indexOf("\"" + check.getName() + "\"");
+    assertTrue(start >= 0, json);
+    return json.substring(start, json.indexOf('}', json.indexOf("tokensVisited", start)));
+  }
+
+  private static long count(String section, String phase) {
+    final Matcher matcher = Pattern.compile("\"" + phase + "\": \\{\"count\": (\\d+)")
+        .matcher(section);
+    assertTrue(matcher.find(), section);
+    return Long.parseLong(matcher.group(1));
+  }
+
+  private List<File> writeFiles() throws Exception {
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      final StringBuilder source = new StringBuilder("class Sample" + i + " {\n");
+      for (int method = 0; method < METHODS; method++) {
+        source.append("  void method").append(method).append("() {\n")
+            .append("    int value = 1;\n\n\n")
+            .append("    value++;\n")
+            .append("  }\n");
+      }
+      final Path file = directory.resolve("Sample" + i + ".java");
+      Files.writeString(file, source.append("}\n").toString());
+      files.add(file.toFile());
+    }
+    return files;
+  }
+}
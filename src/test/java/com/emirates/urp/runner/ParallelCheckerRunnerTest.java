@@ -0,0 +1,224 @@
+package com.emirates.urp.runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.emirates.urp.checks.EmptyLineAtTheEndChecker;
+import com.emirates.urp.checks.IntermediateEmptyLinesCheck;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.checks.TranslationCheck;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the same files with one checker and with the parallel runner, events must be the same and
+ * come in the same order.
+ */
+class ParallelCheckerRunnerTest {
+
+  private static final int FILES = 40;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldReportTheSameEventsAsOneCheckerInFileOrder() throws Exception {
+    final List<File> files = writeFiles();
+    final RecordingListener expected = new RecordingListener();
+    final RecordingListener actual = new RecordingListener();
+
+    final Checker checker = new Checker();
+    checker.setModuleClassLoader(Checker.class.getClassLoader());
+    checker.configure(configuration());
+    checker.addListener(expected);
+    final int expectedErrors = checker.process(files);
+    checker.destroy();
+    final int actualErrors = ParallelCheckerRunner.builder()
+        .configuration(configuration())
+        .threads(4)
+        .addListener(actual)
+        .build()
+        .process(files);
+
+    assertEquals(FILES * 3, expectedErrors);
+    assertEquals(expectedErrors, actualErrors);
+    assertEquals(expected.events, actual.events);
+  }
+
+  @Test
+  void shouldCheckBundlesOfDirectoryTogetherAndOtherFilesInChunks() throws Exception {
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final Path bundle = Files.createDirectories(directory.resolve("bundle" + i));
+      files.add(write(bundle.resolve("Sample.java"), "class Sample {\n}\n"));
+      files.add(write(bundle.resolve("messages.properties"), "first=1\nsecond=2\n"));
+      files.add(write(bundle.resolve("messages_de.properties"), "first=1\n"));
+    }
+    final DefaultConfiguration configuration = configuration();
+    configuration.addChild(new DefaultConfiguration(TranslationCheck.class.getName()));
+    configuration.addChild(new DefaultConfiguration(CountingCheck.class.getName()));
+    final RecordingListener expected = new RecordingListener();
+    final RecordingListener actual = new RecordingListener();
+
+    final Checker checker = new Checker();
+    checker.setModuleClassLoader(Checker.class.getClassLoader());
+    checker.configure(configuration);
+    checker.addListener(expected);
+    final int expectedErrors = checker.process(files);
+    checker.destroy();
+    CountingCheck.STARTED.set(0);
+    CountingCheck.FINISHED.set(0);
+    final int actualErrors = ParallelCheckerRunner.builder()
+        .configuration(configuration)
+        .threads(4)
+        .addListener(actual)
+        .build()
+        .process(files);
+
+    assertEquals(4, expectedErrors, "a missing key in every bundle");
+    assertEquals(expectedErrors, actualErrors);
+    assertEquals(sorted(expected.events), sorted(actual.events));
+    final List<String> expectedOrder = new ArrayList<>(List.of("auditStarted"));
+    for (int i = 0; i < files.size(); i++) {
+      expectedOrder.add("fileStarted " + files.get(i));
+      expectedOrder.add("fileFinished " + files.get(i));
+      if (i % 3 == 2) {
+        expectedOrder.add("fileStarted " + files.get(i));
+        expectedOrder.add("fileFinished " + files.get(i));
+      }
+    }
+    expectedOrder.add("auditFinished");
+    assertEquals(expectedOrder, withoutErrors(actual.events),
+        "files come in their order, translations of a bundle follow its last file");
+    assertEquals(1 + 4, CountingCheck.STARTED.get(), "a chunk of java files and every bundle");
+    assertEquals(CountingCheck.STARTED.get(), CountingCheck.FINISHED.get());
+  }
+
+  @Test
+  void shouldRejectCacheFile() {
+    final DefaultConfiguration configuration = configuration();
+    configuration.addProperty("cacheFile", directory.resolve("cache").toString());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> ParallelCheckerRunner.builder().configuration(configuration));
+  }
+
+  private List<File> writeFiles() throws Exception {
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      final Path file = directory.resolve("Sample" + i + ".java");
+      Files.writeString(file, "class Sample" + i + " {\n"
+          + "  void method() {\n"
+          + "    int value = " + i + ";\n"
+          + "\n"
+          + "\n"
+          + "    value++;\n"
+          + "\n"
+          + "  }\n"
+          + "}\n");
+      files.add(file.toFile());
+    }
+    return files;
+  }
+
+  private static File write(Path file, String content) throws Exception {
+    Files.writeString(file, content);
+    return file.toFile();
+  }
+
+  private static List<String> sorted(List<String> events) {
+    final List<String> returnValue = new ArrayList<>(events);
+    Collections.sort(returnValue);
+    return returnValue;
+  }
+
+  private static List<String> withoutErrors(List<String> events) {
+    return events.stream().filter(event -> !event.startsWith("error ")).toList();
+  }
+
+  private static DefaultConfiguration configuration() {
+    final DefaultConfiguration treeWalker = new DefaultConfiguration(TreeWalker.class.getName());
+    treeWalker.addChild(new DefaultConfiguration(IntermediateEmptyLinesCheck.class.getName()));
+    treeWalker.addChild(new DefaultConfiguration(EmptyLineAtTheEndChecker.class.getName()));
+    final DefaultConfiguration checker = new DefaultConfiguration("Checker");
+    checker.addChild(treeWalker);
+    return checker;
+  }
+
+  /**
+   * Counts starts and finishes of file set checks.
+   */
+  public static final class CountingCheck extends AbstractFileSetCheck {
+
+    private static final AtomicInteger STARTED = new AtomicInteger();
+
+    private static final AtomicInteger FINISHED = new AtomicInteger();
+
+    @Override
+    public void beginProcessing(String charset) {
+      STARTED.incrementAndGet();
+    }
+
+    @Override
+    protected void processFiltered(File file, FileText fileText) {
+      // only starts and finishes are counted
+    }
+
+    @Override
+    public void finishProcessing() {
+      FINISHED.incrementAndGet();
+    }
+  }
+
+  /**
+   * Records events as strings.
+   */
+  private static final class RecordingListener implements AuditListener {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+      events.add("auditStarted");
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+      events.add("auditFinished");
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+      events.add("fileStarted " + event.getFileName());
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+      events.add("fileFinished " + event.getFileName());
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+      events.add("error " + event.getFileName() + ":" + event.getLine() + " "
+          + event.getMessage());
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+      events.add("exception " + event.getFileName() + " " + throwable);
+    }
+  }
+}
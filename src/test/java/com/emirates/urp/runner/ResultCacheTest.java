@@ -0,0 +1,234 @@
+package com.emirates.urp.runner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.emirates.urp.checks.EmptyLineAtTheEndChecker;
+import com.emirates.urp.checks.IntermediateEmptyLinesCheck;
+import com.emirates.urp.filters.GitChangedFilesFilter;
+import com.emirates.urp.util.ChangeSetProvider;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the parallel runner with a result cache and changes files, the configuration and git
+ * changes between runs.
+ */
+class ResultCacheTest {
+
+  private static final int FILES = 10;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldReplayStoredEventsOfUnchangedFiles() throws Exception {
+    final Path cacheFile = directory.resolve("cache/results");
+    final List<File> files = writeFiles();
+
+    final List<String> expected = run(files, null);
+    assertEquals(expected, run(files, cacheFile));
+    final long size = Files.size(cacheFile);
+    assertEquals(expected, run(files, cacheFile));
+    assertEquals(size, Files.size(cacheFile), "all results are reused, nothing is appended");
+    final ResultCache cache = ResultCache.open(cacheFile, configuration(),
+        Checker.class.getClassLoader());
+    for (File file : files) {
+      assertTrue(cache.find(cache.key(file)).isPresent(), file::toString);
+    }
+
+    Files.writeString(files.get(0).toPath(), "class Sample0 {\n}\n");
+    final List<String> changed = run(files, null);
+    assertNotEquals(expected, changed);
+    assertTrue(cache.find(cache.key(files.get(0))).isEmpty());
+    assertEquals(changed, run(files, cacheFile));
+    final long appended = Files.size(cacheFile);
+    assertTrue(appended > size);
+    assertEquals(changed, run(files, cacheFile));
+    assertEquals(appended, Files.size(cacheFile));
+  }
+
+  @Test
+  void shouldMissWhenConfigurationDiffers() throws Exception {
+    final Path cacheFile = directory.resolve("results");
+    final File file = writeFiles().get(0);
+    run(List.of(file), cacheFile);
+    final DefaultConfiguration configuration = configuration();
+    ((DefaultConfiguration) configuration.getChildren()[0].getChildren()[0])
+        .addProperty("severity", "warning");
+
+    final ResultCache cache = ResultCache.open(cacheFile, configuration,
+        Checker.class.getClassLoader());
+
+    assertTrue(cache.find(cache.key(file)).isEmpty());
+  }
+
+  @Test
+  void shouldMissWhenSuppressionFileChanges() throws Exception {
+    final Path suppressions = directory.resolve("suppressions.xml");
+    Files.writeString(suppressions, suppressions("Sample1.java"));
+    final DefaultConfiguration configuration = configuration();
+    final DefaultConfiguration filter = new DefaultConfiguration("SuppressionFilter");
+    filter.addProperty("file", suppressions.toString());
+    configuration.addChild(filter);
+    final File file = writeFiles().get(0);
+    final ResultCache cache = ResultCache.open(directory.resolve("results"), configuration,
+        Checker.class.getClassLoader());
+    final ResultCache.Key key = cache.key(file);
+    cache.put(key, new ResultCache.Result(null, List.of()));
+    cache.flush();
+
+    Files.writeString(suppressions, suppressions("Sample0.java"));
+    final ResultCache edited = ResultCache.open(directory.resolve("results"), configuration,
+        Checker.class.getClassLoader());
+
+    assertTrue(cache.find(key).isPresent());
+    assertTrue(edited.find(edited.key(file)).isEmpty());
+  }
+
+  @Test
+  void shouldMissWhenChangedLinesDiffer() throws Exception {
+    final String userDir = System.getProperty("user.dir");
+    try (Git git = Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call()) {
+      final Path source = directory.resolve("A.java");
+      Files.writeString(source, "class A {\n}\n");
+      commit(git);
+      git.checkout().setCreateBranch(true).setName("feature").call();
+      Files.writeString(source, "class A {\n  int value;\n}\n");
+      commit(git);
+      System.setProperty("user.dir", directory.toString());
+      ChangeSetProvider.getInstance().invalidate();
+      final DefaultConfiguration configuration = configuration();
+      final DefaultConfiguration filter =
+          new DefaultConfiguration(GitChangedFilesFilter.class.getName());
+      filter.addProperty("diffCacheEnabled", "false");
+      configuration.addChild(filter);
+      final ResultCache cache = ResultCache.open(directory.resolve("results"), configuration,
+          Checker.class.getClassLoader());
+      final ResultCache.Key changed = cache.key(source.toFile());
+      cache.put(changed, new ResultCache.Result(null, List.of()));
+
+      final RefUpdate main = git.getRepository().updateRef("refs/heads/main");
+      main.setNewObjectId(git.getRepository().resolve("feature"));
+      main.forceUpdate();
+      ChangeSetProvider.getInstance().invalidate();
+      final ResultCache.Key merged = cache.key(source.toFile());
+
+      assertTrue(cache.find(changed).isPresent());
+      assertNotEquals(changed, merged);
+      assertTrue(cache.find(merged).isEmpty());
+    } finally {
+      System.setProperty("user.dir", userDir);
+      ChangeSetProvider.getInstance().invalidate();
+    }
+  }
+
+  private List<String> run(List<File> files, Path cacheFile) throws Exception {
+    final RecordingListener listener = new RecordingListener();
+    final ParallelCheckerRunner.Builder builder = ParallelCheckerRunner.builder()
+        .configuration(configuration())
+        .threads(3)
+        .addListener(listener);
+    if (cacheFile != null) {
+      builder.resultCache(cacheFile);
+    }
+    final int errors = builder.build().process(files);
+    listener.events.add("errors " + errors);
+    return listener.events;
+  }
+
+  private List<File> writeFiles() throws Exception {
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      final Path file = directory.resolve("Sample" + i + ".java");
+      Files.writeString(file, "class Sample" + i + " {\n"
+          + "  void method() {\n"
+          + "    int value = " + i + ";\n"
+          + "\n"
+          + "\n"
+          + "    value++;\n"
+          + "\n"
+          + "  }\n"
+          + "}\n");
+      files.add(file.toFile());
+    }
+    return files;
+  }
+
+  private static String suppressions(String files) {
+    return "<?xml version=\"1.0\"?>\n"
+        + "<!DOCTYPE suppressions PUBLIC \"-//Checkstyle//DTD SuppressionFilter Configuration"
+        + " 1.2//EN\" \"https://checkstyle.org/dtds/suppressions_1_2.dtd\">\n"
+        + "<suppressions>\n"
+        + "  <suppress files=\"" + files + "\" checks=\".*\"/>\n"
+        + "</suppressions>\n";
+  }
+
+  private static void commit(Git git) throws Exception {
+    git.add().addFilepattern(".").call();
+    git.commit().setMessage("commit").call();
+  }
+
+  private static DefaultConfiguration configuration() {
+    final DefaultConfiguration treeWalker = new DefaultConfiguration(TreeWalker.class.getName());
+    treeWalker.addChild(new DefaultConfiguration(IntermediateEmptyLinesCheck.class.getName()));
+    treeWalker.addChild(new DefaultConfiguration(EmptyLineAtTheEndChecker.class.getName()));
+    final DefaultConfiguration checker = new DefaultConfiguration("Checker");
+    checker.addChild(treeWalker);
+    return checker;
+  }
+
+  /**
+   * Records events as strings, with everything listeners of reports read.
+   */
+  private static final class RecordingListener implements AuditListener {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void auditStarted(AuditEvent event) {
+      events.add("auditStarted");
+    }
+
+    @Override
+    public void auditFinished(AuditEvent event) {
+      events.add("auditFinished");
+    }
+
+    @Override
+    public void fileStarted(AuditEvent event) {
+      events.add("fileStarted " + event.getFileName());
+    }
+
+    @Override
+    public void fileFinished(AuditEvent event) {
+      events.add("fileFinished " + event.getFileName());
+    }
+
+    @Override
+    public void addError(AuditEvent event) {
+      events.add("error " + event.getFileName() + ":" + event.getLine() + ":"
+          + event.getColumn() + " " + event.getSeverityLevel() + " " + event.getModuleId() + " "
+          + event.getSourceName() + " " + event.getViolation().getKey() + " "
+          + event.getMessage());
+    }
+
+    @Override
+    public void addException(AuditEvent event, Throwable throwable) {
+      events.add("exception " + event.getFileName() + " " + throwable);
+    }
+  }
+}
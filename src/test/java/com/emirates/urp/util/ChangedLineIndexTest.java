@@ -0,0 +1,114 @@
+package com.emirates.urp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ChangedLineIndexTest {
+
+  @Test
+  void shouldMergeAdjacentAndOverlappingLines() {
+    final ChangedLineIndex index = ChangedLineIndex.of(7, 3, 4, 5, 4, 12, 6);
+
+    assertEquals("[[3, 8), [12, 13)]", index.toString());
+    assertEquals(2, index.rangeCount());
+    assertEquals(6, index.lineCount());
+    assertEquals(List.of(3, 4, 5, 6, 7, 12), index.asList());
+  }
+
+  @Test
+  void shouldMergeUnorderedRanges() {
+    final ChangedLineIndex index = ChangedLineIndex.builder()
+        .addRange(20, 25)
+        .addRange(1, 3)
+        .addRange(22, 30)
+        .addRange(3, 5)
+        .addRange(10, 10)
+        .addRange(8, 9)
+        .build();
+
+    assertEquals(ChangedLineIndex.ofRanges(1, 5, 8, 9, 20, 30), index);
+    assertEquals(15, index.lineCount());
+    assertEquals(index.hashCode(), ChangedLineIndex.ofRanges(1, 5, 8, 9, 20, 30).hashCode());
+  }
+
+  @Test
+  void shouldKeepRangesSeparatedByOneLine() {
+    final ChangedLineIndex index = ChangedLineIndex.ofRanges(1, 3, 4, 6);
+
+    assertEquals(2, index.rangeCount());
+    assertFalse(index.contains(3));
+  }
+
+  @Test
+  void shouldFindLinesWithBinarySearch() {
+    final ChangedLineIndex index = ChangedLineIndex.ofRanges(2, 4, 10, 11, 20, 25, 40, 41);
+
+    assertFalse(index.contains(0));
+    assertFalse(index.contains(1));
+    assertTrue(index.contains(2));
+    assertTrue(index.contains(3));
+    assertFalse(index.contains(4));
+    assertTrue(index.contains(10));
+    assertFalse(index.contains(11));
+    assertTrue(index.contains(24));
+    assertFalse(index.contains(25));
+    assertTrue(index.contains(40));
+    assertFalse(index.contains(41));
+    assertFalse(index.contains(Integer.MAX_VALUE - 1));
+  }
+
+  @Test
+  void shouldIntersectIntervals() {
+    final ChangedLineIndex index = ChangedLineIndex.ofRanges(2, 4, 10, 11);
+
+    assertTrue(index.intersects(0, 3));
+    assertTrue(index.intersects(3, 10));
+    assertTrue(index.intersects(0, 100));
+    assertTrue(index.intersects(10, 11));
+    assertFalse(index.intersects(0, 2), "end is exclusive");
+    assertFalse(index.intersects(4, 10), "gap between ranges");
+    assertFalse(index.intersects(11, 100));
+    assertFalse(index.intersects(3, 3), "empty interval");
+    assertFalse(index.intersects(5, 1), "reversed interval");
+  }
+
+  @Test
+  void shouldHandleEmptyIndex() {
+    final ChangedLineIndex index = ChangedLineIndex.builder().addRange(5, 5).build();
+
+    assertSame(ChangedLineIndex.empty(), index);
+    assertTrue(index.isEmpty());
+    assertEquals(0, index.rangeCount());
+    assertEquals(0, index.lineCount());
+    assertFalse(index.contains(0));
+    assertFalse(index.intersects(0, Integer.MAX_VALUE));
+    assertEquals(List.of(), index.asList());
+    assertEquals("[]", index.toString());
+  }
+
+  @Test
+  void shouldCopyRangesOfAnotherIndex() {
+    final ChangedLineIndex first = ChangedLineIndex.ofRanges(1, 3);
+    final ChangedLineIndex second = ChangedLineIndex.ofRanges(3, 6, 8, 9);
+
+    final ChangedLineIndex merged = ChangedLineIndex.builder()
+        .addAll(second)
+        .addAll(first)
+        .addAll(List.of(9, 10))
+        .build();
+
+    assertEquals(ChangedLineIndex.ofRanges(1, 6, 8, 11), merged);
+  }
+
+  @Test
+  void shouldRejectInvalidBounds() {
+    assertThrows(IllegalArgumentException.class, () -> ChangedLineIndex.ofRanges(1, 2, 3));
+    assertThrows(IllegalArgumentException.class, () -> ChangedLineIndex.of(-1));
+  }
+}
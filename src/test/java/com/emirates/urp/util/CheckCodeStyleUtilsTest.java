@@ -0,0 +1,123 @@
+package com.emirates.urp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Requests changed files of a temporary repository from many threads at once.
+ */
+class CheckCodeStyleUtilsTest {
+
+  private static final int THREADS = 32;
+
+  private static final int REQUESTS = 200;
+
+  @TempDir
+  Path directory;
+
+  private Git git;
+
+  private Repository repository;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    git = Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call();
+    write("C.java", "c\n");
+    commit("main");
+    final RefUpdate originMain = git.getRepository().updateRef("refs/remotes/origin/main");
+    originMain.setNewObjectId(git.getRepository().resolve("main"));
+    originMain.update();
+
+    git.checkout().setCreateBranch(true).setName("feature").call();
+    write("A.java", "a\n");
+    write("B.txt", "b\n");
+    commit("feature");
+    write("C.java", "changed\n");
+    repository = GitRepositories.open(directory.toFile());
+  }
+
+  @AfterEach
+  void tearDown() {
+    git.close();
+  }
+
+  @Test
+  void shouldComputeOneSnapshotPerExtensionSetUnderContention() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<List<List<String>>>> futures = new ArrayList<>();
+    try {
+      for (int thread = 0; thread < THREADS; thread++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          final List<List<String>> results = new ArrayList<>();
+          for (int request = 0; request < REQUESTS; request++) {
+            results.add(request % 2 == 0
+                ? CheckCodeStyleUtils.getChangedFileList(repository, "main", ".java")
+                : CheckCodeStyleUtils.getChangedFileList(repository, "main", ".txt"));
+          }
+          return results;
+        }));
+      }
+      start.countDown();
+
+      final List<String> java = CheckCodeStyleUtils.getChangedFileList(repository, "main",
+          ".java");
+      final List<String> text = CheckCodeStyleUtils.getChangedFileList(repository, "main", ".txt");
+      for (Future<List<List<String>>> future : futures) {
+        final List<List<String>> results = future.get(1, TimeUnit.MINUTES);
+        for (int request = 0; request < REQUESTS; request++) {
+          assertSame(request % 2 == 0 ? java : text, results.get(request));
+        }
+      }
+      assertEquals(List.of("A.java", "C.java"), java);
+      assertEquals(List.of("B.txt"), text);
+      assertEquals(List.of("A.java", "B.txt", "C.java"),
+          CheckCodeStyleUtils.getChangedFileList(repository, "main"));
+    } finally {
+      executor.shutdownNow();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+  }
+
+  @Test
+  void shouldReadChangedFilesAgainAfterInvalidation() throws Exception {
+    assertEquals(List.of("A.java", "C.java"),
+        CheckCodeStyleUtils.getChangedFileList(repository, "main", ".java"));
+    write("D.java", "d\n");
+    commit("more");
+
+    assertEquals(List.of("A.java", "C.java"),
+        CheckCodeStyleUtils.getChangedFileList(repository, "main", ".java"));
+    ChangeSetProvider.getInstance().invalidate();
+    assertEquals(List.of("A.java", "C.java", "D.java"),
+        CheckCodeStyleUtils.getChangedFileList(repository, "main", ".java"));
+  }
+
+  private void write(String path, String content) throws Exception {
+    Files.writeString(directory.resolve(path), content);
+  }
+
+  private void commit(String message) throws Exception {
+    git.add().addFilepattern(".").call();
+    git.commit().setMessage(message).call();
+  }
+}
@@ -0,0 +1,238 @@
+package com.emirates.urp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Diffs a feature branch of a temporary repository against its main branch.
+ */
+class DiffParserTest {
+
+  @TempDir
+  Path directory;
+
+  private Git git;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    git = Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call();
+    write("A.java", "a\nb\nc\n");
+    write("B.java", "b\n");
+    write("C.java", "c\n");
+    commit("main");
+
+    git.checkout().setCreateBranch(true).setName("feature").call();
+    write("A.java", "a\nchanged\nc\nadded\n");
+    write("D.java", "d\n");
+    git.rm().addFilepattern("C.java").call();
+    commit("feature");
+  }
+
+  @AfterEach
+  void tearDown() {
+    git.close();
+  }
+
+  @Test
+  void shouldStreamChangedFilesInPathOrder() throws Exception {
+    final List<GitChange> changes = new ArrayList<>();
+
+    DiffParser.stream(directory.toString(), "feature", "main",
+        DiffOptions.builder().cacheEnabled(false).build(), changes::add);
+
+    assertEquals(2, changes.size());
+    assertEquals("A.java", changes.get(0).path());
+    assertEquals("[[1, 2), [3, 4)]", changes.get(0).addedLineIndex().toString());
+    assertEquals("[[1, 2)]", changes.get(0).deletedLineIndex().toString());
+    assertEquals("D.java", changes.get(1).path());
+    assertEquals("[[0, 1)]", changes.get(1).addedLineIndex().toString());
+  }
+
+  @Test
+  void shouldStreamTheSameChangesAsParse() throws Exception {
+    final DiffOptions options = DiffOptions.defaults();
+    final List<GitChange> changes = new ArrayList<>();
+
+    final ChangeSet parsed = DiffParser.parse(directory.toString(), "feature", "main", options);
+    // the second run is served from the diff cache written by parse
+    DiffParser.stream(directory.toString(), "feature", "main", options, changes::add);
+
+    assertEquals(new ArrayList<>(parsed.changes()), changes);
+  }
+
+  @Test
+  void shouldDiffInParallelInTheSameOrder() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      write("File" + i + ".java", "line\n".repeat(i) + "added\n");
+    }
+    commit("many files");
+    final DiffOptions sequential = DiffOptions.builder().cacheEnabled(false).build();
+    final List<GitChange> expected = new ArrayList<>();
+    final List<GitChange> actual = new ArrayList<>();
+
+    DiffParser.stream(directory.toString(), "feature", "main", sequential, expected::add);
+    DiffParser.stream(directory.toString(), "feature", "main",
+        sequential.toBuilder().parallelism(4).build(), actual::add);
+
+    assertEquals(52, expected.size());
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void shouldReportOnlyLinesChangedAfterMove() throws Exception {
+    git.checkout().setName("main").call();
+    write("Moved.java", "class Moved {\n" + "  int field;\n".repeat(20) + "}\n");
+    commit("to be moved");
+    git.checkout().setName("feature").call();
+    git.merge().include(git.getRepository().resolve("main")).call();
+    Files.createDirectories(directory.resolve("other"));
+    Files.delete(directory.resolve("Moved.java"));
+    write("other/Moved.java",
+        "class Moved {\n" + "  int field;\n".repeat(20) + "  int added;\n}\n");
+    git.rm().addFilepattern("Moved.java").call();
+    commit("move");
+    final DiffOptions options = DiffOptions.builder().cacheEnabled(false).build();
+
+    final GitChange moved = DiffParser.parse(directory.toString(), "feature", "main", options)
+        .find("other/Moved.java").orElseThrow();
+    final GitChange added = DiffParser.parse(directory.toString(), "feature", "main",
+            options.toBuilder().renameDetectionEnabled(false).build())
+        .find("other/Moved.java").orElseThrow();
+
+    assertEquals("[[21, 22)]", moved.addedLineIndex().toString());
+    assertEquals("[[0, 23)]", added.addedLineIndex().toString());
+  }
+
+  @Test
+  void shouldDiffOnlyStagedChangesWithIndexSource() throws Exception {
+    write("A.java", "a\nchanged\nc\nadded\nunstaged\n");
+    write("D.java", "d\nstaged\n");
+    git.add().addFilepattern("D.java").call();
+    final List<GitChange> changes = new ArrayList<>();
+
+    DiffParser.stream(directory.toString(), "feature", "main",
+        DiffOptions.builder().diffSource(DiffSource.INDEX).build(), changes::add);
+
+    assertEquals(1, changes.size());
+    assertEquals("D.java", changes.get(0).path());
+    assertEquals("[[1, 2)]", changes.get(0).addedLineIndex().toString());
+  }
+
+  @Test
+  void shouldDiffWorkTreeAgainstMergeBaseWithWorkTreeSource() throws Exception {
+    write("A.java", "a\nchanged\nc\nadded\nunstaged\n");
+    // rewritten with the same content, hashed but not reported
+    write("B.java", "b\n");
+    final List<GitChange> changes = new ArrayList<>();
+
+    DiffParser.stream(directory.toString(), "feature", "main",
+        DiffOptions.builder().diffSource(DiffSource.WORKTREE).parallelism(4).build(), changes::add);
+
+    assertEquals(2, changes.size());
+    assertEquals("A.java", changes.get(0).path());
+    assertEquals("[[1, 2), [3, 5)]", changes.get(0).addedLineIndex().toString());
+    assertEquals("D.java", changes.get(1).path());
+  }
+
+  @Test
+  void shouldCompareWithMainHeadWhenMergeBaseIsDeeperThanLimit() throws Exception {
+    git.checkout().setName("main").call();
+    write("B.java", "b\nmain\n");
+    commit("main moves on");
+    git.checkout().setName("feature").call();
+    final DiffOptions options = DiffOptions.builder().cacheEnabled(false).build();
+
+    final ChangeSet shallow = DiffParser.parse(directory.toString(), "feature", "main",
+        options.toBuilder().mergeBaseDepth(1).build());
+    final ChangeSet deep = DiffParser.parse(directory.toString(), "feature", "main",
+        options.toBuilder().mergeBaseDepth(10).build());
+    final ChangeSet cached = DiffParser.parse(directory.toString(), "feature", "main",
+        options.toBuilder().mergeBaseDepth(1).build());
+
+    assertEquals(Set.of("A.java", "B.java", "D.java"), shallow.paths());
+    assertEquals(Set.of("A.java", "D.java"), deep.paths());
+    assertEquals(Set.of("A.java", "D.java"), cached.paths());
+  }
+
+  @Test
+  void shouldNotCacheDiffWithMainHeadWhenMergeBaseIsDeeperThanLimit() throws Exception {
+    git.checkout().setName("main").call();
+    write("B.java", "b\nmain\n");
+    commit("main moves on");
+    git.checkout().setName("feature").call();
+    final DiffOptions options = DiffOptions.builder().cacheEnabled(true).build();
+
+    final ChangeSet shallow = DiffParser.parse(directory.toString(), "feature", "main",
+        options.toBuilder().mergeBaseDepth(1).build());
+    final ChangeSet unlimited = DiffParser.parse(directory.toString(), "feature", "main",
+        options);
+
+    assertEquals(Set.of("A.java", "B.java", "D.java"), shallow.paths());
+    assertEquals(Set.of("A.java", "D.java"), unlimited.paths());
+  }
+
+  @Test
+  void shouldFindMergeBaseWithinLimitWhenCommitTimesAreSkewed() throws Exception {
+    final Instant now = Instant.now();
+    git.checkout().setName("main").call();
+    write("B.java", "b\nmain\n");
+    commit("main moves on", now.plus(1, ChronoUnit.HOURS));
+    git.checkout().setName("feature").call();
+    write("E.java", "e\n");
+    commit("committed with a clock behind", now.minus(1, ChronoUnit.DAYS));
+    final DiffOptions options = DiffOptions.builder().cacheEnabled(false).build();
+
+    final ChangeSet bounded = DiffParser.parse(directory.toString(), "feature", "main",
+        options.toBuilder().mergeBaseDepth(10).build());
+
+    assertEquals(Set.of("A.java", "D.java", "E.java"), bounded.paths());
+  }
+
+  @Test
+  void shouldShareChangeSetBetweenOptionsWithTheSameResult() {
+    final ChangeSetProvider provider = ChangeSetProvider.getInstance();
+    final DiffOptions options = DiffOptions.builder().cacheEnabled(false).build();
+    try {
+      final ChangeSet first = provider.getChangeSet(directory.toString(), "feature", "main",
+          options);
+
+      assertSame(first, provider.getChangeSet(directory.toString(), "feature", "main",
+          options.toBuilder().cacheEnabled(true).parallelism(4).build()));
+      assertNotSame(first, provider.getChangeSet(directory.toString(), "feature", "main",
+          options.toBuilder().renameDetectionEnabled(false).build()));
+    } finally {
+      provider.invalidate();
+    }
+  }
+
+  private void write(String path, String content) throws Exception {
+    Files.writeString(directory.resolve(path), content);
+  }
+
+  private void commit(String message) throws Exception {
+    git.add().addFilepattern(".").call();
+    git.commit().setMessage(message).call();
+  }
+
+  private void commit(String message, Instant when) throws Exception {
+    final PersonIdent person = new PersonIdent("Test", "test@example.com", when, ZoneOffset.UTC);
+    git.add().addFilepattern(".").call();
+    git.commit().setMessage(message).setAuthor(person).setCommitter(person).call();
+  }
+}
@@ -0,0 +1,151 @@
+package com.emirates.urp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.URIish;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Fetches into a clone of a local bare repository while another clone pushes to it.
+ */
+class FetchPolicyTest {
+
+  private static final String ORIGIN_MAIN = "refs/remotes/origin/main";
+
+  @TempDir
+  Path directory;
+
+  private Git upstream;
+
+  private Repository repository;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    upstream = Git.init().setInitialBranch("main")
+        .setDirectory(directory.resolve("upstream").toFile()).call();
+    commit("first");
+
+    final File origin = directory.resolve("origin.git").toFile();
+    Git.cloneRepository().setBare(true).setURI(upstream.getRepository().getDirectory().toURI()
+        .toString()).setDirectory(origin).call().close();
+    upstream.remoteAdd().setName("origin").setUri(new URIish(origin.toURI().toString())).call();
+
+    Git.cloneRepository().setURI(origin.toURI().toString())
+        .setDirectory(directory.resolve("checked").toFile()).call().close();
+    repository = GitRepositories.open(directory.resolve("checked").toFile());
+    Files.deleteIfExists(repository.getDirectory().toPath().resolve("FETCH_HEAD"));
+
+    commit("second");
+    upstream.push().setRemote("origin").add("main").call();
+  }
+
+  @AfterEach
+  void tearDown() {
+    upstream.close();
+  }
+
+  @Test
+  void shouldNotFetchWithNeverPolicy() throws Exception {
+    final ObjectId before = repository.resolve(ORIGIN_MAIN);
+
+    CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.NEVER, Duration.ZERO);
+
+    assertEquals(before, repository.resolve(ORIGIN_MAIN));
+  }
+
+  @Test
+  void shouldFetchWithIfStalePolicyWhenNeverFetched() throws Exception {
+    final CompletableFuture<Void> fetch =
+        CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.IF_STALE, Duration.ofHours(1));
+
+    assertTrue(fetch.isDone());
+    assertEquals(upstreamHead(), repository.resolve(ORIGIN_MAIN));
+  }
+
+  @Test
+  void shouldNotFetchWithIfStalePolicyWhenFetchedRecently() throws Exception {
+    Files.writeString(repository.getDirectory().toPath().resolve("FETCH_HEAD"), "");
+    final ObjectId before = repository.resolve(ORIGIN_MAIN);
+
+    CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.IF_STALE, Duration.ofHours(1));
+
+    assertEquals(before, repository.resolve(ORIGIN_MAIN));
+    assertNotEquals(upstreamHead(), repository.resolve(ORIGIN_MAIN));
+  }
+
+  @Test
+  void shouldFetchAgainWithIfStalePolicyWhenFetchHeadGetsStale() throws Exception {
+    CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.IF_STALE, Duration.ofHours(1));
+    assertEquals(upstreamHead(), repository.resolve(ORIGIN_MAIN));
+    commit("third");
+    upstream.push().setRemote("origin").add("main").call();
+    final File fetchHead = new File(repository.getDirectory(), "FETCH_HEAD");
+    assertTrue(fetchHead.setLastModified(
+        System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+
+    CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.IF_STALE, Duration.ofHours(1));
+
+    assertEquals(upstreamHead(), repository.resolve(ORIGIN_MAIN));
+  }
+
+  @Test
+  void shouldFetchInBackground() throws Exception {
+    final CompletableFuture<Void> fetch =
+        CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.BACKGROUND, Duration.ZERO);
+
+    fetch.get(30, TimeUnit.SECONDS);
+    assertEquals(upstreamHead(), repository.resolve(ORIGIN_MAIN));
+  }
+
+  @Test
+  void shouldWaitForRunningFetch() throws Exception {
+    final CompletableFuture<Void> first =
+        CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.BACKGROUND, Duration.ZERO);
+    final CompletableFuture<Void> second =
+        CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.ALWAYS, Duration.ZERO);
+
+    assertTrue(second.isDone());
+    assertEquals(upstreamHead(), repository.resolve(ORIGIN_MAIN));
+    first.get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldFetchAgainWithAlwaysPolicy() throws Exception {
+    final CompletableFuture<Void> first =
+        CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.ALWAYS, Duration.ZERO);
+    commit("third");
+    upstream.push().setRemote("origin").add("main").call();
+
+    final CompletableFuture<Void> second =
+        CheckCodeStyleUtils.fetchChanges(repository, FetchPolicy.ALWAYS, Duration.ZERO);
+
+    assertNotSame(first, second);
+    assertEquals(upstreamHead(), repository.resolve(ORIGIN_MAIN));
+  }
+
+  private void commit(String content) throws Exception {
+    Files.writeString(upstream.getRepository().getWorkTree().toPath().resolve("Sample.java"),
+        content);
+    upstream.add().addFilepattern(".").call();
+    upstream.commit().setMessage(content).call();
+  }
+
+  private ObjectId upstreamHead() throws Exception {
+    return upstream.getRepository().resolve("HEAD");
+  }
+}
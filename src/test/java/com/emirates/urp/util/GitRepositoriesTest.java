@@ -0,0 +1,47 @@
+package com.emirates.urp.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Opens a temporary repository that has a commit-graph file.
+ */
+class GitRepositoriesTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void shouldEnableCommitGraphAgainAfterConfigurationIsReloaded() throws Exception {
+    Git.init().setInitialBranch("main").setDirectory(directory.toFile()).call().close();
+    final Path gitDirectory = directory.resolve(".git");
+    Files.createDirectories(gitDirectory.resolve("objects/info"));
+    Files.createFile(gitDirectory.resolve("objects/info/commit-graph"));
+
+    final Repository repository = GitRepositories.open(directory.toFile());
+    assertTrue(commitGraphEnabled(repository));
+
+    Files.writeString(gitDirectory.resolve("config"), "[user]\n\tname = Test\n",
+        StandardOpenOption.APPEND);
+    final Repository reopened = GitRepositories.open(directory.toFile());
+
+    assertSame(repository, reopened);
+    assertEquals("Test", reopened.getConfig().getString("user", null, "name"));
+    assertTrue(commitGraphEnabled(reopened));
+  }
+
+  private static boolean commitGraphEnabled(Repository repository) {
+    return repository.getConfig()
+        .getBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, "commitGraph", false);
+  }
+}
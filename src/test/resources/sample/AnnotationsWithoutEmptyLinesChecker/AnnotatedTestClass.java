@@ -0,0 +1,51 @@
+package sample;
+
+@Deprecated
+
+@SuppressWarnings("all")
+public class AnnotatedTestClass {
+
+  @Deprecated
+  // comment between annotations
+  @SuppressWarnings("unused")
+
+  private int field;
+
+  @SuppressWarnings({
+      "unchecked",
+      "rawtypes"
+  })
+  @Deprecated
+  public void multiLineAnnotation() {
+    @SuppressWarnings("unused")
+
+    int local = 0;
+  }
+
+  @SuppressWarnings({
+      // raw types of the legacy API
+
+      "rawtypes"
+  })
+  public void commentedAnnotationArguments() {
+  }
+
+  @Deprecated
+  @SuppressWarnings("all")
+  @Override
+  @SafeVarargs
+  @FunctionalInterface
+
+  public final String toString() {
+    return "";
+  }
+
+  @Deprecated // trailing comment
+  AnnotatedTestClass() {
+  }
+
+  @Deprecated
+  /* block */
+  record Data(int value) {
+  }
+}
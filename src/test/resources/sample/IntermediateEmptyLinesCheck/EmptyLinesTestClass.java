@@ -0,0 +1,82 @@
+package sample;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class EmptyLinesTestClass {
+
+  public EmptyLinesTestClass() {
+    int first = 1;
+
+
+    int second = 2;
+  }
+
+  @Deprecated
+  public String singleEmptyLines() {
+    String value = "a";
+
+    value = value + "b";
+
+    return value;
+  }
+
+  public String textBlock() {
+    String text = """
+        first
+
+
+        after two empty lines inside the text block
+        """;
+
+
+    return text;
+  }
+
+  public void blockComment() {
+    /*
+     * comment
+
+
+     * with empty lines inside
+     */
+    int value = 1;
+
+
+
+    value++;
+  }
+
+  public Supplier<Function<Integer, List<Integer>>> lambdas() {
+    return () -> value -> {
+
+
+      return List.of(value, ((Function<Integer, Integer>) it -> {
+        int doubled = it * 2;
+
+
+        return doubled;
+      }).apply(value));
+    };
+  }
+
+  public void lineComments() {
+    // comment
+
+    // another comment
+
+
+    int value = 1;
+  }
+
+  public record Point(int x, int y) {
+
+    public Point {
+      int sum = x + y;
+
+
+      sum++;
+    }
+  }
+}